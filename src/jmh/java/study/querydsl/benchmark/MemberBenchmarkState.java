@@ -0,0 +1,67 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.MemberBulkLoader;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 벤치마크 공용 상태. 내장 H2 (in-memory) 로 애플리케이션을 띄우고 rowCount 만큼 member 를 넣어둔다.
+ * member i 는 age = i % 100, 팀은 teamA / teamB 에 번갈아 속한다.
+ */
+@State(Scope.Benchmark)
+public class MemberBenchmarkState {
+
+    @Param({"10000"})
+    public int rowCount;
+
+    public ConfigurableApplicationContext context;
+    public MemberJpaRepository memberJpaRepository;
+    public MemberRepository memberRepository;
+    public JPAQueryFactory queryFactory;
+    public MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=bench",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--logging.level.org.hibernate.SQL=warn",
+                        "--logging.level.org.hibernate.trace=warn",
+                        "--decorator.datasource.enabled=false",
+                        "--member.count.cache-ttl=0s");   // count 캐시가 아니라 쿼리 자체를 측정한다.
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        queryFactory = new JPAQueryFactory(context.getBean(EntityManager.class));
+        seed();
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+    }
+
+    private void seed() {
+        context.getBean(MemberBulkLoader.class).load(2, rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.concurrent.TimeUnit;
+
+// fetchResults 방식과 content / count 분리 방식의 페이징 비교
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberPageBenchmark {
+
+    @Param({"0", "100"})
+    public int page;
+
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        pageRequest = PageRequest.of(page, 20);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple(MemberBenchmarkState state) {
+        return state.memberRepository.searchPageSimple(state.condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex(MemberBenchmarkState state) {
+        return state.memberRepository.searchPageComplex(state.condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex_count(MemberBenchmarkState state) {
+        return state.memberRepository.searchPageComplex_count(state.condition, pageRequest);
+    }
+}
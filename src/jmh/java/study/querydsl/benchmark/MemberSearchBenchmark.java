@@ -0,0 +1,26 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// BooleanBuilder 방식과 where 다중 파라미터 방식의 동적 쿼리 비교
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberSearchBenchmark {
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder(MemberBenchmarkState state) {
+        return state.memberJpaRepository.searchByBuilder(state.condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByWhereParam(MemberBenchmarkState state) {
+        return state.memberJpaRepository.searchByWhereParam(state.condition);
+    }
+}
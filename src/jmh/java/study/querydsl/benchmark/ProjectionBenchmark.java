@@ -0,0 +1,81 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+// DTO 프로젝션 방식 비교 : setter / field / 생성자 / @QueryProjection
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProjectionBenchmark {
+
+    @Benchmark
+    public List<MemberTeamDto> bean(MemberBenchmarkState state) {
+        return state.queryFactory
+                .select(Projections.bean(MemberTeamDto.class,
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.between(20, 40))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> fields(MemberBenchmarkState state) {
+        return state.queryFactory
+                .select(Projections.fields(MemberTeamDto.class,
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.between(20, 40))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> constructor(MemberBenchmarkState state) {
+        return state.queryFactory
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.between(20, 40))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> queryProjection(MemberBenchmarkState state) {
+        return state.queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.between(20, 40))
+                .fetch();
+    }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 같은 rowCount 건을 엔티티(쓰기 트랜잭션 / 읽기 전용 트랜잭션)와 DTO 로 읽을 때의 할당량 비교.
+ * gc 프로파일러의 gc.alloc.rate.norm (B/op) 이 결과 한 번당 힙 사용량이다. (기본 rowCount = 10000)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyProjectionBenchmark {
+
+    private final MemberSearchCondition all = new MemberSearchCondition();
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup
+    public void setUp(MemberBenchmarkState state) {
+        PlatformTransactionManager transactionManager = state.context.getBean(PlatformTransactionManager.class);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // 기존 searchEntity 경로 : 관리 엔티티 + 스냅샷 + 커밋 시 dirty checking
+    @Benchmark
+    public List<Member> managedEntities(MemberBenchmarkState state) {
+        return writeTransaction.execute(status -> state.queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .fetch());
+    }
+
+    @Benchmark
+    public List<Member> readOnlyEntities(MemberBenchmarkState state) {
+        return readOnlyTransaction.execute(status -> state.memberJpaRepository.searchEntity(all));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> dtoProjection(MemberBenchmarkState state) {
+        return readOnlyTransaction.execute(status -> state.memberJpaRepository.searchByWhereParam(all));
+    }
+}
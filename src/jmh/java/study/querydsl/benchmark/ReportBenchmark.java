@@ -0,0 +1,62 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.dto.MemberAgeReport;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberReportRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 상관 서브쿼리(JPQL) 리포트와 윈도우 함수(네이티브) 리포트 비교.
+ * 100만 건 : java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar ReportBenchmark -p rowCount=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReportBenchmark {
+
+    private MemberReportRepository memberReportRepository;
+
+    @Setup
+    public void setUp(MemberBenchmarkState state) {
+        memberReportRepository = state.context.getBean(MemberReportRepository.class);
+    }
+
+    @Benchmark
+    public List<MemberAgeReport> ageVsAveragesSubquery() {
+        return memberReportRepository.ageVsAveragesSubquery();
+    }
+
+    @Benchmark
+    public List<MemberAgeReport> ageVsAveragesWindow() {
+        return memberReportRepository.ageVsAverages();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> aboveTeamAverageSubquery() {
+        return memberReportRepository.aboveTeamAverageSubquery();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> aboveTeamAverageWindow() {
+        return memberReportRepository.aboveTeamAverage();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> atTeamMaxSubquery() {
+        return memberReportRepository.atTeamMaxSubquery();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> atTeamMaxWindow() {
+        return memberReportRepository.atTeamMax();
+    }
+}
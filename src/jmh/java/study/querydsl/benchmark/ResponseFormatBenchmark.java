@@ -0,0 +1,104 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * /v2 ~ /v4 응답 형식별 인코딩 시간 비교. (DB 없이 Page<MemberTeamDto> 직렬화만 측정한다)
+ * 인코딩 결과 크기는 보조 결과(encode:encodedBytes / encode:encodes)로 결과 파일에 함께 남는다. 둘을 나누면 응답 하나의 크기다.
+ * java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar ResponseFormatBenchmark -p pageSize=1000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseFormatBenchmark {
+
+    public enum Format {
+        JSON, CBOR, SMILE
+    }
+
+    @Param({"20", "1000"})
+    public int pageSize;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public Format format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private Page<MemberTeamDto> page;
+    private ObjectWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<MemberTeamDto> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            long teamId = i % 2 == 0 ? 1L : 2L;
+            content.add(new MemberTeamDto((long) i + 1, "member" + i, i % 100, teamId, teamId == 1L ? "teamA" : "teamB"));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, pageSize), 100_000);
+        // 애플리케이션과 같은 방식(스프링 빌더 + 팩토리)으로 만든다.
+        Jackson2ObjectMapperBuilder builder;
+        switch (format) {
+            case CBOR: builder = Jackson2ObjectMapperBuilder.cbor(); break;
+            case SMILE: builder = Jackson2ObjectMapperBuilder.smile(); break;
+            default: builder = Jackson2ObjectMapperBuilder.json();
+        }
+        writer = builder.build().writer();
+    }
+
+    @Benchmark
+    public byte[] encode(Size size) throws IOException {
+        byte[] encoded = encode();
+        size.encodedBytes += encoded.length;
+        size.encodes++;
+        return encoded;
+    }
+
+    private byte[] encode() throws IOException {
+        byte[] body = writer.writeValueAsBytes(page);
+        if (!gzip) {
+            return body;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    // EVENTS 카운터는 반복 횟수만큼 더해져서 보고되므로 바이트 수와 인코딩 횟수를 같이 센다.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long encodedBytes;
+        public long encodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            encodedBytes = 0;
+            encodes = 0;
+        }
+    }
+}
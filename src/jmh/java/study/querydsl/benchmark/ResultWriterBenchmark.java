@@ -0,0 +1,53 @@
+package study.querydsl.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.repository.MemberSearchResultWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchByWhereParam 응답 경로 비교 : QMemberTeamDto 로 List 를 만든 뒤 Jackson 직렬화 vs ResultSet 에서 바로 쓰기.
+ * 응답 바이트는 버리고 조회 + 직렬화만 측정한다. 행당 할당량은 gc 프로파일러의 gc.alloc.rate.norm 으로 비교한다.
+ * java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar ResultWriterBenchmark -p rowCount=100000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResultWriterBenchmark {
+
+    private MemberBenchmarkState state;
+    private ObjectMapper objectMapper;
+    private JsonFactory jsonFactory;
+    private MemberSearchResultWriter memberSearchResultWriter;
+
+    @Setup
+    public void setUp(MemberBenchmarkState state) {
+        this.state = state;
+        objectMapper = state.context.getBean(ObjectMapper.class);
+        jsonFactory = objectMapper.getFactory();
+        memberSearchResultWriter = state.context.getBean(MemberSearchResultWriter.class);
+    }
+
+    @Benchmark
+    public void dtoProjection() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), state.memberJpaRepository.searchByWhereParam(state.condition));
+    }
+
+    @Benchmark
+    public long directWriter() throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(OutputStream.nullOutputStream())) {
+            return memberSearchResultWriter.writeByWhereParam(state.condition, generator);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * member 검색 요청의 동시 실행 수를 커넥션 풀 크기에 맞춰 제한한다.
+ * 가상 스레드에서는 대기 비용이 싸므로 요청은 세마포어에서 줄을 서고, acquire-timeout 을 넘기면 503 으로 돌려보낸다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "member.web.db-limiter", name = "enabled", havingValue = "true")
+public class DatabaseConcurrencyLimiter extends OncePerRequestFilter {
+
+    private static final Pattern MEMBER_SEARCH = Pattern.compile("^/v\\d+/members.*");
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public DatabaseConcurrencyLimiter(@Value("${member.web.db-limiter.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+                                      @Value("${member.web.db-limiter.acquire-timeout-ms:5000}") long acquireTimeoutMillis) {
+        this.permits = new Semaphore(permits, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    // 바로 들어가지 못하고 줄을 선 요청 수
+    public long queuedCount() {
+        return queued.sum();
+    }
+
+    // 줄을 섰다가 acquire-timeout 을 넘겨 503 으로 돌려보낸 요청 수
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !MEMBER_SEARCH.matcher(request.getRequestURI()).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired = false;
+        try {
+            // tryAcquire() 는 공정 순서를 무시하고 끼어들기 때문에 대기 시간 0 으로 먼저 시도한다.
+            acquired = permits.tryAcquire(0, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                queued.increment();
+                acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "too many concurrent member searches");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.config;
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * querydsl-sql 설정.
+ * SpringConnectionProvider 는 DataSourceUtils 로 커넥션을 얻으므로 JpaTransactionManager 가 잡아둔 트랜잭션 커넥션을 그대로 쓴다.
+ * 즉 JPA 와 querydsl-sql 쓰기가 한 @Transactional 안에서 같이 커밋 / 롤백된다.
+ */
+@Configuration
+public class QuerydslSqlConfig {
+
+    @Bean
+    public SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(H2Templates.builder().build());
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        return new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
+    }
+}
@@ -0,0 +1,126 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션은 레플리카로, 나머지는 primary 로 보낸다.
+ * 트랜잭션의 readOnly 여부는 커넥션을 실제로 얻는 시점에 정해져 있어야 하므로 LazyConnectionDataSourceProxy 로 감싸서 쓴다.
+ * 레플리카 커넥션을 얻지 못하면 retryAfterMillis 동안 그 레플리카를 빼고, 이번 요청은 primary 로 보낸다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    public enum Strategy {
+        ROUND_ROBIN,
+        LEAST_LATENCY   // 커넥션 획득 시간(EWMA)이 가장 짧은 레플리카
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Strategy strategy;
+    private final long retryAfterNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Strategy strategy, long retryAfterMillis) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.strategy = strategy;
+        this.retryAfterNanos = retryAfterMillis * 1_000_000L;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        Replica replica = select(System.nanoTime());
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        long start = System.nanoTime();
+        try {
+            Connection connection = replica.dataSource.getConnection();
+            replica.recordLatency(System.nanoTime() - start);
+            return connection;
+        } catch (SQLException e) {
+            replica.downUntil = System.nanoTime() + retryAfterNanos;
+            log.warn("{} is unavailable, falling back to primary: {}", replica.name, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    // primary / 레플리카 모두 계정이 고정된 Hikari 풀이라 다른 계정으로는 커넥션을 열 수 없다.
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("pooled routing data source does not open connections with explicit credentials");
+    }
+
+    // 풀은 이 데이터소스가 만든 것이므로 함께 정리한다.
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+        if (primary instanceof Closeable) {
+            ((Closeable) primary).close();
+        }
+    }
+
+    private Replica select(long now) {
+        if (strategy == Strategy.LEAST_LATENCY) {
+            Replica best = null;
+            for (Replica replica : replicas) {
+                if (replica.isAvailable(now) && (best == null || replica.latencyNanos < best.latencyNanos)) {
+                    best = replica;
+                }
+            }
+            return best;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable(now)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long latencyNanos;
+        private volatile long downUntil;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        boolean isAvailable(long now) {
+            return downUntil - now <= 0;
+        }
+
+        // 대략적인 값이면 충분하므로 동기화 없이 EWMA 로 갱신한다.
+        void recordLatency(long nanos) {
+            latencyNanos = latencyNanos == 0 ? nanos : (latencyNanos * 7 + nanos) / 8;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class SearchExecutorConfig {
+
+    /**
+     * 페이징 count 쿼리를 content 쿼리와 동시에 돌리기 위한 전용 풀.
+     * 커넥션을 하나씩 더 쓰므로 커넥션 풀보다 작게 잡고, 큐가 차면 거절해서 호출 스레드에서 순차 실행하게 한다.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor memberCountExecutor(@Value("${member.search.count-threads:4}") int threads,
+                                                      @Value("${member.search.count-queue:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("member-count-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 톰캣 요청을 가상 스레드에서 처리한다. (member.web.virtual-threads.enabled=true, virtual 프로필)
+ * 빌드는 15 바이트코드로 하므로 JDK 21 API 는 실행 시점에 리플렉션으로 찾는다. jar 를 JDK 21 이상에서 실행하면 가상 스레드를 쓰고,
+ * 그보다 낮은 JDK 에서는 기존 플랫폼 스레드 풀을 그대로 쓴다.
+ * 블로킹 JDBC 호출이 많아도 요청 스레드가 고갈되지 않고, DB 동시성은 DatabaseConcurrencyLimiter 가 제한한다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "member.web.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> {
+            if (executor != null && protocolHandler instanceof AbstractProtocol) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual threads are not available on Java {}, keeping the platform thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    public static boolean isSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -1,45 +1,29 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
 
-    private final InitMemberService initMemberService;
+    private final MemberBulkLoader memberBulkLoader;
 
-    @PostConstruct
-    public void init(){
-        initMemberService.init();   // 스프링 라이프 사이클로 인해 분리해주어야 한다.
-        // @postConstruct 와 @Transaction
-    }
+    @Value("${member.loader.team-count:2}")
+    private int teamCount;
 
-    @Component
-    static class InitMemberService{
-        @PersistenceContext
-        private EntityManager em;
+    @Value("${member.loader.member-count:100}")
+    private int memberCount;
 
-        @Transactional
-        public void init(){
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for(int i = 0 ; i< 100 ; i++){
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member"+i,i,selectedTeam));
-            }
-        }
+    @PostConstruct
+    public void init(){
+        // @PostConstruct 에는 @Transactional 이 적용되지 않는다. 트랜잭션은 로더가 chunk 단위로 직접 연다.
+        memberBulkLoader.load(teamCount, memberCount);
     }
 }
@@ -1,38 +1,125 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberIngestRequest;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.dto.TeamStats;
+import study.querydsl.repository.MemberColumnarIndex;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchResultWriter;
+import study.querydsl.repository.MemberStatsRepository;
+import study.querydsl.service.MemberExportService;
+import study.querydsl.service.MemberIngestionService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
-    private final MemberJpaRepository memberJpaRepository;
+    private final MemberColumnarIndex memberColumnarIndex;
     private final MemberRepository memberRepository;
+    private final MemberExportService memberExportService;
+    private final MemberIngestionService memberIngestionService;
+    private final MemberStatsRepository memberStatsRepository;
+    private final MemberResponseCache memberResponseCache;
+    private final MemberSearchResultWriter memberSearchResultWriter;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition){
-        return memberJpaRepository.searchByWhereParam(condition);
+        return memberColumnarIndex.search(condition);
     }
+    // 쓰기 지연 적재. 응답은 해당 배치가 커밋된 뒤 member id 로 돌아간다.
+    @PostMapping("/v1/members")
+    public CompletableFuture<Long> ingestMemberV1(@RequestBody MemberIngestRequest request){
+        return memberIngestionService.submit(request).exceptionally(e -> {
+            if (e instanceof RejectedExecutionException) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+            }
+            throw new CompletionException(e);
+        });
+    }
+    // v1 과 같은 조건이지만 결과를 메모리에 모으지 않고 한 행씩 흘려보낸다.
+    @GetMapping("/v1/members/export")
+    public void exportMemberV1(MemberSearchCondition condition,
+                               @RequestParam(defaultValue = "NDJSON") MemberExportService.Format format,
+                               HttpServletResponse response) throws IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType(format == MemberExportService.Format.CSV ? "text/csv" : "application/x-ndjson");
+        memberExportService.export(condition, format, response.getOutputStream());
+    }
+    // v1 과 같은 결과를 DTO 없이 JDBC 컬럼 값에서 바로 응답 스트림에 쓴다. (Accept 로 JSON / CBOR / Smile)
+    @GetMapping("/v1/members/direct")
+    public void searchMemberV1Direct(MemberSearchCondition condition,
+                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                     HttpServletResponse response) throws IOException {
+        MemberResponseCache.Format format = MemberResponseCache.negotiate(accept);
+        response.setContentType(format.getMediaType().toString());
+        try (JsonGenerator generator = memberResponseCache.factory(format).createGenerator(response.getOutputStream())) {
+            memberSearchResultWriter.writeByWhereParam(condition, generator);
+        }
+    }
+    // v2 ~ v4 는 데이터 버전으로 ETag 를 붙여 If-None-Match 에 304 로 답하고, 직렬화한 응답을 버전이 바뀔 때까지 재사용한다.
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageSimple(condition, pageable);
+    public ResponseEntity<byte[]> searchMemberV2(MemberSearchCondition condition, Pageable pageable, WebRequest request){
+        return memberResponseCache.respond("v2", condition, pageable, request,
+                () -> memberRepository.searchPageSimple(condition, pageable));
     }
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageComplex(condition, pageable);
+    public ResponseEntity<byte[]> searchMemberV3(MemberSearchCondition condition, Pageable pageable, WebRequest request){
+        return memberResponseCache.respond("v3", condition, pageable, request,
+                () -> memberRepository.searchPageComplex(condition, pageable));
     }
     @GetMapping("/v4/members")
-    public Page<MemberTeamDto> searchMemberV4(MemberSearchCondition condition, Pageable pageable){
-        return memberRepository.searchPageComplex_count(condition, pageable);
+    public ResponseEntity<byte[]> searchMemberV4(MemberSearchCondition condition, Pageable pageable, WebRequest request){
+        return memberResponseCache.respond("v4", condition, pageable, request,
+                () -> memberRepository.searchPageComplex_count(condition, pageable));
+    }
+    @GetMapping("/v5/members")
+    public MemberSlice searchMemberV5(MemberSearchCondition condition,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "ID") MemberCursor.Order order,
+                                      @RequestParam(defaultValue = "20") int size){
+        if (size < 1 || size > 1000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and 1000");
+        }
+        MemberCursor memberCursor;
+        try {
+            memberCursor = cursor == null ? MemberCursor.first(order) : MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return memberRepository.searchSlice(condition, memberCursor, size);
+    }
+    @GetMapping("/v6/members")
+    public Page<MemberTeamDto> searchMemberV6(MemberSearchCondition condition, Pageable pageable){
+        return memberRepository.searchPageParallel(condition, pageable);
+    }
+    // 팀별 인원 / 평균 나이 / 나이 분포. 평소에는 메모리에 유지되는 집계를 그대로 돌려준다.
+    @GetMapping("/stats")
+    public List<TeamStats> stats(){
+        return memberStatsRepository.teamStats();
     }
 }
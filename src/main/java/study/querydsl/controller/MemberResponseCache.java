@@ -0,0 +1,230 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberDataVersion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 페이징 검색 응답의 조건부 GET 과 직렬화 결과 캐시.
+ * ETag 는 데이터 버전(기동 epoch 포함) + (엔드포인트, 조건, 페이지) 로 만들어서 If-None-Match 가 맞으면 DB 를 건드리지 않고 304 로 끝낸다.
+ * 맞지 않으면 같은 버전에서 직렬화해둔 바이트를 돌려주고, 그것도 없을 때만 조회한다.
+ * 버전은 조회 전에 읽으므로 조회 도중 커밋된 쓰기가 있으면 이 결과는 이미 지난 버전으로 저장되어 다시 쓰이지 않는다.
+ *
+ * Accept 에 따라 JSON / CBOR / Smile 로 직렬화하고, Accept-Encoding 에 gzip 이 있으면 gzip-min-bytes 이상인 응답을
+ * 압축해서 저장한다. 형식과 압축 여부마다 바이트가 다르므로 캐시 키와 ETag 에 모두 넣는다.
+ */
+@Component
+public class MemberResponseCache {
+
+    public enum Format {
+        JSON(MediaType.APPLICATION_JSON, "j"),
+        CBOR(MediaType.APPLICATION_CBOR, "c"),
+        SMILE(new MediaType("application", "x-jackson-smile"), "s");
+
+        private final MediaType mediaType;
+        private final String tag;
+
+        Format(MediaType mediaType, String tag) {
+            this.mediaType = mediaType;
+            this.tag = tag;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private final MemberDataVersion dataVersion;
+    private final Map<Format, ObjectMapper> mappers = new EnumMap<>(Format.class);
+    private final int maxEntries;
+    private final int gzipMinBytes;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long cachedVersion;
+
+    public MemberResponseCache(MemberDataVersion dataVersion, ObjectMapper objectMapper,
+                               MappingJackson2CborHttpMessageConverter cborConverter,
+                               MappingJackson2SmileHttpMessageConverter smileConverter,
+                               @Value("${member.response-cache.max-entries:1000}") int maxEntries,
+                               @Value("${member.response-cache.gzip-min-bytes:2048}") int gzipMinBytes) {
+        this.dataVersion = dataVersion;
+        this.mappers.put(Format.JSON, objectMapper);
+        this.mappers.put(Format.CBOR, cborConverter.getObjectMapper());
+        this.mappers.put(Format.SMILE, smileConverter.getObjectMapper());
+        this.maxEntries = maxEntries;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /**
+     * 304 를 보냈으면 null 을 돌려준다. (응답은 WebRequest.checkNotModified 가 이미 채웠다)
+     */
+    public ResponseEntity<byte[]> respond(String endpoint, MemberSearchCondition condition, Pageable pageable,
+                                          WebRequest request, Supplier<?> query) {
+        Format format = negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        long version = dataVersion.current();
+        Key key = new Key(version, endpoint, condition, pageable, format, gzip);
+        String etag = "\"" + dataVersion.epoch() + "-" + version + "-" + Integer.toHexString(key.requestHash()) + "-" + format.tag + (gzip ? "z" : "") + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        if (version != cachedVersion) {
+            entries.clear();        // 지난 버전의 응답은 다시 쓰이지 않는다.
+            cachedVersion = version;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = encode(format, gzip, query.get());
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            entries.put(key, entry);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())   // 저장은 하되 쓸 때마다 ETag 로 확인하게 한다.
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(format.mediaType);
+        if (entry.gzipped) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");  // 이미 압축했으므로 서버 압축(server.compression)은 건너뛴다.
+        }
+        return response.body(entry.body);
+    }
+
+    // 캐시를 거치지 않고 직접 스트리밍하는 응답도 같은 설정의 생성기를 쓴다.
+    public JsonFactory factory(Format format) {
+        return mappers.get(format).getFactory();
+    }
+
+    private Entry encode(Format format, boolean gzip, Object value) {
+        byte[] body;
+        try {
+            body = mappers.get(format).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!gzip || body.length < gzipMinBytes) {
+            return new Entry(body, false);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Entry(compressed.toByteArray(), true);
+    }
+
+    // q 값이 높은 순서로 처음 맞는 형식. Accept 가 없거나 */* 면 JSON 이다.
+    static Format negotiate(String accept) {
+        if (!hasText(accept)) {
+            return Format.JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (Format format : Format.values()) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "supported: application/json, application/cbor, "
+                + Format.SMILE.mediaType);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (!hasText(acceptEncoding)) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // 빈 문자열과 null 은 같은 조건이므로 정규화해서 키로 쓴다.
+    @EqualsAndHashCode
+    private static class Key {
+        private final long version;
+        private final String endpoint;
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+        private final int page;
+        private final int size;
+        private final String sort;
+        private final Format format;
+        private final boolean gzip;
+
+        Key(long version, String endpoint, MemberSearchCondition condition, Pageable pageable, Format format, boolean gzip) {
+            this.version = version;
+            this.endpoint = endpoint;
+            this.username = hasText(condition.getUsername()) ? condition.getUsername() : null;
+            this.teamName = hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+            this.ageGoe = condition.getAgeGoe();
+            this.ageLoe = condition.getAgeLoe();
+            this.page = pageable.getPageNumber();
+            this.size = pageable.getPageSize();
+            this.sort = pageable.getSort().toString();
+            this.format = format;
+            this.gzip = gzip;
+        }
+
+        // 버전과 표현(형식 / 압축)은 ETag 에 따로 붙인다.
+        int requestHash() {
+            return Objects.hash(endpoint, username, teamName, ageGoe, ageLoe, page, size, sort);
+        }
+    }
+
+    private static class Entry {
+        private final byte[] body;
+        private final boolean gzipped;
+
+        Entry(byte[] body, boolean gzipped) {
+            this.body = body;
+            this.gzipped = gzipped;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MemberAgeReport {
+    private Long memberId;
+    private String username;
+    private int age;
+    private String teamName;
+    private double globalAvgAge;
+    private Double teamAvgAge;      // 팀 없는 member 는 null
+
+    public MemberAgeReport(Long memberId, String username, int age, String teamName, double globalAvgAge, Double teamAvgAge) {
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamName = teamName;
+        this.globalAvgAge = globalAvgAge;
+        this.teamAvgAge = teamAvgAge;
+    }
+}
@@ -0,0 +1,60 @@
+package study.querydsl.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징의 위치 정보.
+ * 클라이언트에는 encode() 결과인 불투명 토큰만 노출하고, 다음 요청에서 decode() 로 복원한다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class MemberCursor {
+
+    public enum Order {
+        ID,     // (member_id)
+        AGE     // (age, member_id)
+    }
+
+    private final Order order;
+    private final Integer age;
+    private final Long memberId;
+
+    public static MemberCursor first(Order order) {
+        return new MemberCursor(order, null, null);
+    }
+
+    public static MemberCursor after(Order order, MemberTeamDto last) {
+        return new MemberCursor(order, order == Order.AGE ? last.getAge() : null, last.getMemberId());
+    }
+
+    public boolean isFirst() {
+        return memberId == null;
+    }
+
+    public String encode() {
+        String raw = order == Order.AGE ? order + ":" + age + ":" + memberId : order + ":" + memberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            Order order = Order.valueOf(parts[0]);
+            if (order == Order.AGE && parts.length == 3) {
+                return new MemberCursor(order, Integer.valueOf(parts[1]), Long.valueOf(parts[2]));
+            }
+            if (order == Order.ID && parts.length == 2) {
+                return new MemberCursor(order, null, Long.valueOf(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            // 아래에서 공통 메시지로 처리
+        }
+        throw new IllegalArgumentException("invalid cursor: " + token);
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberIngestRequest {
+
+    private String username;
+    private int age;
+    private Long teamId;    // 없으면 팀 없이 저장
+}
@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberSlice {
+
+    private final List<MemberTeamDto> content;
+    private final boolean hasNext;
+    private final String nextCursor;    // 마지막 페이지면 null
+
+    public MemberSlice(List<MemberTeamDto> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
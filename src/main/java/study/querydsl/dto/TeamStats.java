@@ -0,0 +1,28 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+@Getter
+public class TeamStats {
+
+    public static final int BUCKET_WIDTH = 10;
+    public static final int BUCKETS = 11;   // 0~9, 10~19, ... 90~99, 100 이상
+
+    private final Long teamId;
+    private final String teamName;
+    private final long memberCount;
+    private final double averageAge;
+    private final long[] ageHistogram;
+
+    public TeamStats(Long teamId, String teamName, long memberCount, long ageSum, long[] ageHistogram) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.averageAge = memberCount == 0 ? 0 : (double) ageSum / memberCount;
+        this.ageHistogram = ageHistogram;
+    }
+
+    public static int bucketOf(int age) {
+        return Math.max(0, Math.min(age / BUCKET_WIDTH, BUCKETS - 1));
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * count 쿼리가 제한 시간 안에 끝나지 않아 전체 건수를 모르는 페이지.
+ * totalElements 는 지금까지 확인된 하한값이고, 페이지가 꽉 찼다면 다음 페이지가 있는 것으로 본다.
+ */
+public class UnknownTotalPage<T> extends PageImpl<T> {
+
+    public UnknownTotalPage(List<T> content, Pageable pageable) {
+        super(content, pageable, pageable.getOffset() + content.size() + (content.size() == pageable.getPageSize() ? 1 : 0));
+    }
+
+    public boolean isTotalKnown() {
+        return false;
+    }
+}
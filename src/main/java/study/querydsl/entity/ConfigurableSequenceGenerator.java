@@ -0,0 +1,40 @@
+package study.querydsl.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 엔티티별 시퀀스 할당 방식을 설정으로 바꿀 수 있는 SequenceStyleGenerator.
+ * 매핑의 @Parameter 값이 기본값이고, 하이버네이트 설정(spring.jpa.properties)에
+ * querydsl.id.[시퀀스 이름].increment_size / optimizer 가 있으면 그 값으로 덮어쓴다.
+ *
+ * optimizer 가 pooled-lo 면 시퀀스 값을 블록의 시작으로 보고 increment_size 개의 id 를 메모리에서 나눠준다.
+ * (시퀀스 값 자체가 블록 시작이라 같은 시퀀스를 쓰는 외부 writer 도 id 를 겹치지 않게 잡을 수 있다)
+ * increment_size 가 1 이면 insert 마다 시퀀스를 호출한다.
+ */
+public class ConfigurableSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "study.querydsl.entity.ConfigurableSequenceGenerator";
+    public static final String SETTINGS_PREFIX = "querydsl.id.";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService settings = serviceRegistry.getService(ConfigurationService.class);
+        String prefix = SETTINGS_PREFIX + params.getProperty(SEQUENCE_PARAM) + ".";
+        override(settings, params, prefix + "increment_size", INCREMENT_PARAM);
+        override(settings, params, prefix + "optimizer", OPT_PARAM);
+        super.configure(type, params, serviceRegistry);
+    }
+
+    private static void override(ConfigurationService settings, Properties params, String setting, String param) {
+        Object value = settings.getSettings().get(setting);
+        if (value != null) {
+            params.setProperty(param, value.toString());
+        }
+    }
+}
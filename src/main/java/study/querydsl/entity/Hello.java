@@ -1,6 +1,8 @@
 package study.querydsl.entity;
 
 import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -10,7 +12,13 @@ import javax.persistence.Id;
 @Entity
 public class Hello {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "hello_seq")
+    @GenericGenerator(name = "hello_seq", strategy = ConfigurableSequenceGenerator.STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "hello_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
 }
@@ -1,16 +1,37 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.event.MemberEntityListener;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),   // teamName + age 범위, team_id FK 조인
+        @Index(name = "idx_member_age", columnList = "age")                  // 팀 조건 없는 age 범위
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)   // 2차 캐시 (member.cache.second-level.enabled)
+@EntityListeners(MemberEntityListener.class)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(exclude = {"team"})
 public class Member {
 
-    @Id @GeneratedValue
+    // 시퀀스 한 번에 id 를 increment_size 개씩 받아온다. insert 마다 시퀀스를 호출하지 않아 배치 insert 가 가능하다.
+    // 할당 크기 / optimizer 는 spring.jpa.properties.querydsl.id.member_seq.* 로 바꿀 수 있다.
+    @Id
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = ConfigurableSequenceGenerator.STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "member_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     @Column(name = "member_id")
     private Long id;
 
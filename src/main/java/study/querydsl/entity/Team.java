@@ -1,26 +1,49 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.event.TeamEntityListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)   // 2차 캐시 (member.cache.second-level.enabled)
+@EntityListeners(TeamEntityListener.class)
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","name"})
 public class Team {
 
-    @Id @GeneratedValue
+    // 시퀀스 한 번에 id 를 increment_size 개씩 받아온다. insert 마다 시퀀스를 호출하지 않아 배치 insert 가 가능하다.
+    // 할당 크기 / optimizer 는 spring.jpa.properties.querydsl.id.team_seq.* 로 바꿀 수 있다.
+    @Id
+    @GeneratedValue(generator = "team_seq")
+    @GenericGenerator(name = "team_seq", strategy = ConfigurableSequenceGenerator.STRATEGY, parameters = {
+            @Parameter(name = "sequence_name", value = "team_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    @BatchSize(size = 100)   // 여러 팀의 memberList 를 IN 쿼리 한 번으로 초기화한다.
     @OneToMany(mappedBy = "team")
     private List<Member> memberList = new ArrayList<>();
 
     public Team(String name){
         this.name = name;
     }
+
+    public void changeName(String name) {
+        this.name = name;
+    }
 }
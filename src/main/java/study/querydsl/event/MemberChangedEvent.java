@@ -0,0 +1,49 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * Member 변경 이벤트. 캐시 무효화처럼 쓰기에 반응해야 하는 곳에서 구독한다.
+ * BULK 는 벌크 연산처럼 어떤 행이 바뀌었는지 모르는 경우라 memberId 등이 비어 있다.
+ * teamName 은 팀이 이미 로딩되어 있을 때만 싣는다. 플러시 중에 프록시를 초기화하지 않기 위해서다.
+ */
+@Getter
+@ToString
+public class MemberChangedEvent {
+
+    public enum Type {
+        PERSIST, UPDATE, REMOVE, BULK
+    }
+
+    private final Type type;
+    private final Long memberId;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+    private final String teamName;
+
+    private MemberChangedEvent(Type type, Long memberId, String username, int age, Long teamId, String teamName) {
+        this.type = type;
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+
+    // 이벤트가 엔티티를 들고 다니면 트랜잭션 밖에서 지연 로딩이 터질 수 있어 값만 복사해둔다.
+    public static MemberChangedEvent of(Type type, Member member) {
+        Team team = member.getTeam();
+        Long teamId = team != null ? team.getId() : null;
+        String teamName = team != null && Hibernate.isInitialized(team) ? team.getName() : null;
+        return new MemberChangedEvent(type, member.getId(), member.getUsername(), member.getAge(), teamId, teamName);
+    }
+
+    public static MemberChangedEvent bulk() {
+        return new MemberChangedEvent(Type.BULK, null, null, 0, null, null);
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.event;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * member / team 데이터 버전. 쓰기(엔티티 리스너, 벌크 연산)가 있었던 트랜잭션이 커밋될 때마다 1 씩 오른다.
+ * 읽기 전에 버전을 잡아두고 그 버전으로 결과를 캐시하면, 읽는 도중 커밋된 쓰기는 버전을 올리므로 낡은 결과가 새 버전으로 남지 않는다.
+ * 행마다 커밋 후 콜백을 걸면 대량 적재가 느려지므로 트랜잭션마다 한 번만 건다. 트랜잭션 밖의 쓰기는 바로 올린다.
+ *
+ * 카운터는 프로세스마다 0 부터 시작하므로 버전만으로는 재기동 전 / 다른 인스턴스의 버전과 구별되지 않는다.
+ * 그래서 기동할 때마다 새로 만드는 epoch 를 함께 써서 (epoch, 버전) 으로 비교한다.
+ * 이 JVM 을 거치지 않은 쓰기(다른 인스턴스, DB 에 직접 실행한 SQL)는 버전을 올리지 못하므로 여기서는 보이지 않는다.
+ */
+@Component
+public class MemberDataVersion {
+
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong();
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        changed();
+    }
+
+    @EventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        changed();
+    }
+
+    // 이 트랜잭션에 이미 콜백을 걸었으면 자원으로 묶어둔 표시를 보고 넘어간다.
+    private void changed() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        Bump bump = new Bump();
+        TransactionSynchronizationManager.bindResource(this, bump);
+        TransactionSynchronizationManager.registerSynchronization(bump);
+    }
+
+    // REQUIRES_NEW 로 트랜잭션이 잠시 멈추면 표시도 같이 떼어서, 안쪽 트랜잭션이 자기 콜백을 걸 수 있게 한다.
+    private class Bump extends TransactionSynchronizationAdapter {
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(MemberDataVersion.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(MemberDataVersion.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            version.incrementAndGet();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MemberDataVersion.this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// 스프링 부트가 하이버네이트에 SpringBeanContainer 를 등록해주기 때문에 엔티티 리스너도 빈으로 주입받을 수 있다.
+@Component
+@RequiredArgsConstructor
+public class MemberEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    @PostPersist
+    public void postPersist(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.PERSIST, member));
+    }
+
+    @PostUpdate
+    public void postUpdate(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.UPDATE, member));
+    }
+
+    @PostRemove
+    public void postRemove(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.REMOVE, member));
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Team 변경 이벤트. 팀 이름이 검색 결과에 들어가므로 응답 캐시처럼 결과 전체에 반응하는 곳에서 구독한다.
+ * 커밋 후에 받는 쪽이 팀을 다시 읽지 않도록 바뀐 뒤의 이름도 싣는다.
+ */
+@Getter
+@ToString
+public class TeamChangedEvent {
+
+    private final Long teamId;
+    private final String name;
+    private final boolean removed;
+
+    public TeamChangedEvent(Long teamId, String name, boolean removed) {
+        this.teamId = teamId;
+        this.name = name;
+        this.removed = removed;
+    }
+}
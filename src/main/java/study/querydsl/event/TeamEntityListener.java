@@ -0,0 +1,28 @@
+package study.querydsl.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+@Component
+@RequiredArgsConstructor
+public class TeamEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    @PostPersist
+    @PostUpdate
+    public void changed(Team team) {
+        publisher.publishEvent(new TeamChangedEvent(team.getId(), team.getName(), false));
+    }
+
+    @PostRemove
+    public void removed(Team team) {
+        publisher.publishEvent(new TeamChangedEvent(team.getId(), team.getName(), true));
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberSearchQueryCache;
+
+@Component
+@RequiredArgsConstructor
+public class MemberCacheMetrics implements MeterBinder {
+
+    private final MemberSearchQueryCache searchQueryCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.query-cache", searchQueryCache, MemberSearchQueryCache::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.query-cache", searchQueryCache, MemberSearchQueryCache::missCount)
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
@@ -0,0 +1,58 @@
+package study.querydsl.metrics;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 최근 느린 쿼리를 고정 크기 링 버퍼에 보관한다. 가득 차면 가장 오래된 것부터 덮어쓴다.
+ */
+public class SlowQueryLog {
+
+    private final AtomicReferenceArray<SlowQuery> buffer;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SlowQueryLog(int capacity) {
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void record(String tag, long elapsedMillis, String sql) {
+        long seq = sequence.getAndIncrement();
+        buffer.set((int) (seq % buffer.length()), new SlowQuery(seq, Instant.now(), tag, elapsedMillis, sql));
+    }
+
+    // 최신 순
+    public List<SlowQuery> recent() {
+        List<SlowQuery> result = new ArrayList<>(buffer.length());
+        for (int i = 0; i < buffer.length(); i++) {
+            SlowQuery query = buffer.get(i);
+            if (query != null) {
+                result.add(query);
+            }
+        }
+        result.sort(Comparator.comparingLong(SlowQuery::getSequence).reversed());
+        return result;
+    }
+
+    @Getter
+    public static class SlowQuery {
+        private final long sequence;
+        private final Instant executedAt;
+        private final String tag;
+        private final long elapsedMillis;
+        private final String sql;
+
+        SlowQuery(long sequence, Instant executedAt, String tag, long elapsedMillis, String sql) {
+            this.sequence = sequence;
+            this.executedAt = executedAt;
+            this.tag = tag;
+            this.elapsedMillis = elapsedMillis;
+            this.sql = sql;
+        }
+    }
+}
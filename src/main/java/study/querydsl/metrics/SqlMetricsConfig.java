@@ -0,0 +1,32 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * member.sql-metrics.enabled=true 일 때만 리스너를 등록한다. 꺼져 있으면 p6spy 로깅 외에 추가 비용이 없다.
+ * p6spy-spring-boot-starter 는 컨텍스트의 JdbcEventListener 빈을 모두 데이터소스에 연결해준다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "member.sql-metrics", name = "enabled", havingValue = "true")
+public class SqlMetricsConfig {
+
+    @Bean
+    public SlowQueryLog slowQueryLog(@Value("${member.sql-metrics.slow-query-capacity:100}") int capacity) {
+        return new SlowQueryLog(capacity);
+    }
+
+    @Bean
+    public SqlMetricsListener sqlMetricsListener(MeterRegistry registry, SlowQueryLog slowQueryLog,
+                                                 @Value("${member.sql-metrics.slow-query-threshold-ms:200}") long thresholdMillis) {
+        return new SqlMetricsListener(registry, slowQueryLog, thresholdMillis);
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(SlowQueryLog slowQueryLog) {
+        return new SlowQueryEndpoint(slowQueryLog);
+    }
+}
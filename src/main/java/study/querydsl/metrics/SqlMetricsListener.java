@@ -0,0 +1,57 @@
+package study.querydsl.metrics;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * p6spy 실행 이벤트를 Micrometer 메트릭으로 바꾼다.
+ * sql.query : 실행 시간 (method = SqlTag), sql.query.rows : 결과 행 수, 임계값을 넘으면 SlowQueryLog 에 남긴다.
+ * 문장마다 불리므로 미터는 SqlTag 별로 한 번만 만들어 두고 다시 쓴다. (태그 수는 SqlTag 를 붙인 메서드 수만큼이다)
+ */
+public class SqlMetricsListener extends SimpleJdbcEventListener {
+
+    private final MeterRegistry registry;
+    private final SlowQueryLog slowQueryLog;
+    private final long slowThresholdNanos;
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> errorTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+
+    public SqlMetricsListener(MeterRegistry registry, SlowQueryLog slowQueryLog, long slowThresholdMillis) {
+        this.registry = registry;
+        this.slowQueryLog = slowQueryLog;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String tag = SqlTag.current();
+        Map<String, Timer> timers = e == null ? successTimers : errorTimers;
+        timers.computeIfAbsent(tag, method -> Timer.builder("sql.query")
+                        .tag("method", method)
+                        .tag("outcome", e == null ? "success" : "error")
+                        .register(registry))
+                .record(timeElapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (timeElapsedNanos >= slowThresholdNanos) {
+            slowQueryLog.record(tag, TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), statementInformation.getSql());
+        }
+    }
+
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+        rowSummaries.computeIfAbsent(SqlTag.current(), method -> DistributionSummary.builder("sql.query.rows")
+                        .tag("method", method)
+                        .register(registry))
+                .record(Math.max(resultSetInformation.getCurrRow() + 1, 0));
+    }
+}
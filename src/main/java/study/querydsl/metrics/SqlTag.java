@@ -0,0 +1,36 @@
+package study.querydsl.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * 지금 실행 중인 SQL 이 어느 레포지토리 메서드에서 나갔는지 표시한다.
+ * p6spy 리스너가 같은 스레드에서 이 값을 읽어 메트릭 태그로 쓴다.
+ */
+public final class SqlTag {
+
+    public static final String UNTAGGED = "untagged";
+
+    private static final ThreadLocal<String> current = new ThreadLocal<>();
+
+    private SqlTag() {
+    }
+
+    public static <T> T with(String tag, Supplier<T> query) {
+        String previous = current.get();
+        current.set(tag);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    public static String current() {
+        String tag = current.get();
+        return tag != null ? tag : UNTAGGED;
+    }
+}
@@ -0,0 +1,512 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.event.MemberChangedEvent;
+import study.querydsl.event.TeamChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * searchByWhereParam 조건을 DB 대신 메모리에서 푸는 컬럼형 인덱스. (member.columnar-index.enabled)
+ * member 하나가 slot 하나이고 id / age / 팀 코드를 primitive 배열에 열 단위로 들고 있다. 팀 이름은 사전(팀 코드)으로 인코딩한다.
+ * username 은 slot 목록으로, 팀은 BitSet 으로, age 범위는 age 순으로 정렬한 slot 배열의 이분 탐색으로 찾아 교집합을 구한다.
+ * 커밋된 Member / Team 변경 이벤트로 따라가고, 벌크 연산처럼 무엇이 바뀌었는지 모르면 다시 적재한다.
+ * 재적재는 락 밖에서 새 열 묶음을 채우고, 그동안 들어온 이벤트를 그 위에 다시 적용한 뒤 락 안에서 통째로 바꿔 끼운다.
+ * 꺼져 있거나 적재 전 / 재적재 중에는 searchByWhereParam 으로 넘긴다. 적재에 실패하면 간격을 늘려가며 다시 시도한다.
+ * 꺼져 있으면 이벤트 리스너(MemberColumnarIndexEventListener)와 적재 스레드를 만들지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberColumnarIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_TEAM = -1;
+    private static final long RETRY_INITIAL_MILLIS = 1_000;
+    private static final long RETRY_MAX_MILLIS = 60_000;
+
+    private final boolean enabled;
+    private final MemberJpaRepository memberJpaRepository;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readTransaction;
+    private final ScheduledExecutorService rebuildExecutor;     // 꺼져 있으면 null
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMutex = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicLong rebuildRequests = new AtomicLong();
+    private volatile boolean stale = true;
+    private long retryDelayMillis = RETRY_INITIAL_MILLIS;     // rebuildMutex
+
+    // 아래 둘은 lock 으로 지킨다. pending 은 재적재 중에만 있고 그동안 들어온 이벤트를 모아둔다.
+    private volatile Columns columns = new Columns();
+    private List<Object> pending;
+
+    public MemberColumnarIndex(@Value("${member.columnar-index.enabled:false}") boolean enabled,
+                               MemberJpaRepository memberJpaRepository, EntityManager em,
+                               PlatformTransactionManager transactionManager) {
+        this.enabled = enabled;
+        this.memberJpaRepository = memberJpaRepository;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.rebuildExecutor = !enabled ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-columnar-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isReady() {
+        return enabled && !stale;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (!isReady()) {
+            return memberJpaRepository.searchByWhereParam(condition);
+        }
+        sortAgesIfDirty();
+        lock.readLock().lock();
+        try {
+            return columns.toDtos(columns.matches(condition));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            requestRebuild();
+        }
+    }
+
+    // 커밋된 변경만 MemberColumnarIndexEventListener 가 넘겨준다.
+    // 커밋 후 콜백에서는 커넥션을 잡지 않는다. 팀 이름은 이벤트에 실려 오고, 모르는 팀이면 다시 적재한다.
+    void onMemberChanged(MemberChangedEvent event) {
+        if (event.getType() == MemberChangedEvent.Type.BULK) {
+            requestRebuild();
+            return;
+        }
+        if (!apply(event)) {
+            requestRebuild();
+        }
+    }
+
+    // 팀 이름이 바뀌면 사전만 고친다.
+    void onTeamChanged(TeamChangedEvent event) {
+        apply(event);
+    }
+
+    // 연속된 벌크 이벤트는 한 번의 재적재로 합친다.
+    public void requestRebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildRequests.incrementAndGet();
+        stale = true;
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rebuildMutex) {
+            rebuildScheduled.set(false);
+            long request = rebuildRequests.get();
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Columns loaded;
+            try {
+                loaded = load();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                retryLater(e);
+                return;
+            }
+
+            // 적재 시점과 겹친 이벤트가 다시 적용될 수 있지만 id 기준으로 덮어쓰므로 결과는 같다.
+            boolean complete = true;
+            lock.writeLock().lock();
+            try {
+                for (Object event : pending) {
+                    complete &= apply(loaded, event);
+                }
+                pending = null;
+                columns = loaded;
+                if (complete && rebuildRequests.get() == request) {
+                    stale = false;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            retryDelayMillis = RETRY_INITIAL_MILLIS;
+            if (!complete) {
+                requestRebuild();
+            }
+            log.info("columnar index rebuilt : {} members, {} teams, {}ms",
+                    loaded.live.cardinality(), loaded.teamIdByCode.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (enabled) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    private Columns load() {
+        return readTransaction.execute(status -> {
+            Columns loaded = new Columns();
+            List<Tuple> rows = queryFactory
+                    .select(member.id, member.username, member.age, team.id, team.name)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .orderBy(member.id.asc())
+                    .fetch();
+            for (Tuple row : rows) {
+                loaded.upsert(row.get(member.id), row.get(member.username), row.get(member.age),
+                        row.get(team.id), row.get(team.name));
+            }
+            return loaded;
+        });
+    }
+
+    private void retryLater(RuntimeException e) {
+        long delay = retryDelayMillis;
+        retryDelayMillis = Math.min(delay * 2, RETRY_MAX_MILLIS);
+        log.warn("columnar index rebuild failed, retrying in {}ms. searches fall back to the database", delay, e);
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(this::rebuild, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 지금 열에 반영하고, 재적재 중이면 적재 결과에도 다시 적용하도록 모아둔다.
+    private boolean apply(Object event) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(event);
+            }
+            return apply(columns, event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 이름을 모르는 새 팀에 들어간 Member 라 반영하지 못했으면 false
+    private static boolean apply(Columns target, Object event) {
+        if (event instanceof TeamChangedEvent) {
+            TeamChangedEvent changed = (TeamChangedEvent) event;
+            if (!changed.isRemoved()) {
+                target.renameTeam(changed.getTeamId(), changed.getName());
+            }
+            return true;
+        }
+        MemberChangedEvent changed = (MemberChangedEvent) event;
+        if (changed.getType() == MemberChangedEvent.Type.REMOVE) {
+            target.remove(changed.getMemberId());
+            return true;
+        }
+        if (changed.getTeamId() != null && changed.getTeamName() == null && !target.knowsTeam(changed.getTeamId())) {
+            target.remove(changed.getMemberId());
+            return false;
+        }
+        target.upsert(changed.getMemberId(), changed.getUsername(), changed.getAge(), changed.getTeamId(), changed.getTeamName());
+        return true;
+    }
+
+    private void sortAgesIfDirty() {
+        if (!columns.ageOrderDirty || !lock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            columns.sortAges();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean ageMatches(int age, MemberSearchCondition condition) {
+        return (condition.getAgeGoe() == null || age >= condition.getAgeGoe())
+                && (condition.getAgeLoe() == null || age <= condition.getAgeLoe());
+    }
+
+    // value 이상인 첫 위치
+    private static int lowerBound(int[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 한 번 적재한 열과 사전 묶음. 재적재는 새 묶음을 만들어 바꿔 끼우므로 검색 중인 묶음을 비우는 일은 없다.
+     */
+    private static class Columns {
+
+        // 열(column) 들. slot 은 재적재 전까지 재사용하지 않고, 지워진 slot 은 live 에서만 빠진다.
+        private int size;
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] ages = new int[INITIAL_CAPACITY];
+        private int[] teamCodes = new int[INITIAL_CAPACITY];
+        private String[] usernames = new String[INITIAL_CAPACITY];
+        private final BitSet live = new BitSet();
+        private final Map<Long, Integer> slotById = new HashMap<>();
+        private final Map<String, int[]> slotsByUsername = new HashMap<>();
+
+        // 팀 사전
+        private final List<Long> teamIdByCode = new ArrayList<>();
+        private final List<String> teamNameByCode = new ArrayList<>();
+        private final List<BitSet> slotsByTeamCode = new ArrayList<>();
+        private final Map<Long, Integer> codeByTeamId = new HashMap<>();
+        private final Map<String, int[]> codesByTeamName = new HashMap<>();
+
+        // age 순으로 정렬한 slot. age 가 바뀌면 다음 검색 때 다시 정렬한다.
+        private int[] sortedAges = new int[0];
+        private int[] sortedSlots = new int[0];
+        private volatile boolean ageOrderDirty = true;
+
+        BitSet matches(MemberSearchCondition condition) {
+            BitSet candidates;
+            if (hasText(condition.getUsername())) {
+                // username 은 거의 유일하므로 후보 몇 개만 나머지 열로 바로 거른다.
+                candidates = new BitSet();
+                for (int slot : slotsByUsername.getOrDefault(condition.getUsername(), new int[0])) {
+                    if (ageMatches(ages[slot], condition)) {
+                        candidates.set(slot);
+                    }
+                }
+            } else {
+                candidates = (BitSet) live.clone();
+                if (condition.getAgeGoe() != null || condition.getAgeLoe() != null) {
+                    candidates.and(ageRange(condition.getAgeGoe(), condition.getAgeLoe()));
+                }
+            }
+            if (hasText(condition.getTeamName())) {
+                BitSet teamSlots = new BitSet();
+                for (int code : codesByTeamName.getOrDefault(condition.getTeamName(), new int[0])) {
+                    teamSlots.or(slotsByTeamCode.get(code));
+                }
+                candidates.and(teamSlots);
+            }
+            return candidates;
+        }
+
+        private BitSet ageRange(Integer goe, Integer loe) {
+            BitSet result = new BitSet();
+            if (ageOrderDirty) {
+                // 다른 쓰기가 먼저 들어와 정렬이 밀렸으면 age 열을 그대로 훑는다.
+                for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                    if ((goe == null || ages[slot] >= goe) && (loe == null || ages[slot] <= loe)) {
+                        result.set(slot);
+                    }
+                }
+                return result;
+            }
+            int from = goe == null ? 0 : lowerBound(sortedAges, goe);
+            int to = loe == null ? sortedAges.length : lowerBound(sortedAges, loe + 1L);
+            for (int i = from; i < to; i++) {
+                result.set(sortedSlots[i]);
+            }
+            return result;
+        }
+
+        void sortAges() {
+            // (age, slot) 을 long 하나로 묶어 정렬하면 박싱 없이 age 순, 같은 age 는 slot 순이 된다.
+            long[] packed = new long[live.cardinality()];
+            int n = 0;
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                packed[n++] = ((long) ages[slot] << 32) | slot;
+            }
+            Arrays.sort(packed);
+            sortedAges = new int[n];
+            sortedSlots = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortedAges[i] = (int) (packed[i] >> 32);
+                sortedSlots[i] = (int) packed[i];
+            }
+            ageOrderDirty = false;
+        }
+
+        List<MemberTeamDto> toDtos(BitSet slots) {
+            List<MemberTeamDto> result = new ArrayList<>(slots.cardinality());
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                int code = teamCodes[slot];
+                result.add(new MemberTeamDto(ids[slot], usernames[slot], ages[slot],
+                        code == NO_TEAM ? null : teamIdByCode.get(code),
+                        code == NO_TEAM ? null : teamNameByCode.get(code)));
+            }
+            return result;
+        }
+
+        void upsert(Long memberId, String username, int age, Long teamId, String teamName) {
+            Integer existing = slotById.get(memberId);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                unlinkUsername(usernames[slot], slot);
+                if (teamCodes[slot] != NO_TEAM) {
+                    slotsByTeamCode.get(teamCodes[slot]).clear(slot);
+                }
+            } else {
+                slot = size++;
+                ensureCapacity(size);
+                slotById.put(memberId, slot);
+                live.set(slot);
+            }
+            ids[slot] = memberId;
+            usernames[slot] = username;
+            if (existing == null || ages[slot] != age) {
+                ageOrderDirty = true;
+            }
+            ages[slot] = age;
+            teamCodes[slot] = teamId == null ? NO_TEAM : teamCode(teamId, teamName);
+            if (teamCodes[slot] != NO_TEAM) {
+                slotsByTeamCode.get(teamCodes[slot]).set(slot);
+            }
+            if (username != null) {
+                int[] slots = slotsByUsername.getOrDefault(username, new int[0]);
+                int[] grown = Arrays.copyOf(slots, slots.length + 1);
+                grown[slots.length] = slot;
+                slotsByUsername.put(username, grown);
+            }
+        }
+
+        void remove(Long memberId) {
+            Integer slot = slotById.remove(memberId);
+            if (slot == null) {
+                return;
+            }
+            live.clear(slot);
+            unlinkUsername(usernames[slot], slot);
+            if (teamCodes[slot] != NO_TEAM) {
+                slotsByTeamCode.get(teamCodes[slot]).clear(slot);
+            }
+            usernames[slot] = null;
+            ageOrderDirty = true;
+        }
+
+        boolean knowsTeam(Long teamId) {
+            return codeByTeamId.containsKey(teamId);
+        }
+
+        // 처음 보는 팀이면 사전에 넣어두고, 이름이 바뀌었으면 이름 색인을 옮긴다.
+        void renameTeam(Long teamId, String teamName) {
+            int code = teamCode(teamId, teamName);
+            String previous = teamNameByCode.get(code);
+            if (Objects.equals(previous, teamName)) {
+                return;
+            }
+            teamNameByCode.set(code, teamName);
+            if (previous != null) {
+                int[] remaining = Arrays.stream(codesByTeamName.get(previous)).filter(c -> c != code).toArray();
+                if (remaining.length == 0) {
+                    codesByTeamName.remove(previous);
+                } else {
+                    codesByTeamName.put(previous, remaining);
+                }
+            }
+            linkTeamName(teamName, code);
+        }
+
+        private void unlinkUsername(String username, int slot) {
+            int[] slots = username != null ? slotsByUsername.get(username) : null;
+            if (slots == null) {
+                return;
+            }
+            int[] remaining = Arrays.stream(slots).filter(s -> s != slot).toArray();
+            if (remaining.length == 0) {
+                slotsByUsername.remove(username);
+            } else {
+                slotsByUsername.put(username, remaining);
+            }
+        }
+
+        private int teamCode(Long teamId, String teamName) {
+            Integer code = codeByTeamId.get(teamId);
+            if (code != null) {
+                return code;
+            }
+            code = teamIdByCode.size();
+            teamIdByCode.add(teamId);
+            teamNameByCode.add(teamName);
+            slotsByTeamCode.add(new BitSet());
+            codeByTeamId.put(teamId, code);
+            linkTeamName(teamName, code);
+            return code;
+        }
+
+        private void linkTeamName(String teamName, int code) {
+            if (teamName == null) {
+                return;
+            }
+            int[] codes = codesByTeamName.getOrDefault(teamName, new int[0]);
+            int[] grown = Arrays.copyOf(codes, codes.length + 1);
+            grown[codes.length] = code;
+            codesByTeamName.put(teamName, grown);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= ids.length) {
+                return;
+            }
+            int grown = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, grown);
+            ages = Arrays.copyOf(ages, grown);
+            teamCodes = Arrays.copyOf(teamCodes, grown);
+            usernames = Arrays.copyOf(usernames, grown);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package study.querydsl.repository;
+
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberChangedEvent;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 페이징 count 쿼리 결과 캐시.
+ * 같은 검색 조건으로 페이지만 넘기는 경우 count 는 바뀌지 않으므로 TTL 동안 재사용하고,
+ * Member 쓰기가 커밋되면 전부 무효화한다. (ttl 이 0 이면 캐시하지 않는다)
+ * 쓰기 트랜잭션 안의 count 는 커밋 전 자기 변경이 섞여 있을 수 있으므로 캐시를 읽지도 채우지도 않는다.
+ */
+@Component
+public class MemberCountCache {
+
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberCountCache(@Value("${member.count.cache-ttl:30s}") Duration ttl,
+                            @Value("${member.count.cache-max-entries:1000}") int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    public long get(MemberSearchCondition condition, LongSupplier counter) {
+        if (ttl.isZero() || inWriteTransaction()) {
+            return counter.getAsLong();
+        }
+        Key key = new Key(condition);
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt - now > 0) {
+            return entry.total;
+        }
+
+        // count 도중 쓰기가 일어났다면 이미 낡은 값이므로 저장하지 않는다.
+        long startGeneration = generation.get();
+        long total = counter.getAsLong();
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        if (generation.get() == startGeneration) {
+            entries.put(key, new Entry(total, now + ttl.toNanos()));
+        }
+        return total;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    // flush 시점이 아니라 커밋 후에 무효화한다. 커밋 전에 다른 스레드가 옛 count 를 새 세대로 다시 캐시하지 않고,
+    // 롤백된 쓰기는 캐시를 건드리지 않는다. 트랜잭션 밖에서 발행된 이벤트(벌크)는 바로 반영한다.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        invalidateAll();
+    }
+
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    // 빈 문자열과 null 은 같은 조건이므로 정규화해서 키로 쓴다.
+    @EqualsAndHashCode
+    private static class Key {
+        private final String username;
+        private final String teamName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+
+        Key(MemberSearchCondition condition) {
+            this.username = hasText(condition.getUsername()) ? condition.getUsername() : null;
+            this.teamName = hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+            this.ageGoe = condition.getAgeGoe();
+            this.ageLoe = condition.getAgeLoe();
+        }
+    }
+
+    private static class Entry {
+        private final long total;
+        private final long expiresAt;
+
+        Entry(long total, long expiresAt) {
+            this.total = total;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+/**
+ * Member 와 Team 을 함께 읽는 방법.
+ * FETCH_JOIN   : 조인 한 번으로 가져온다. 행마다 팀 컬럼이 반복되므로 결과가 적을 때 유리하다.
+ * ENTITY_GRAPH : 쿼리 모양은 그대로 두고 fetchgraph 힌트로 team 을 함께 읽는다.
+ * BATCH        : member 만 읽고 team 프록시는 default_batch_fetch_size 단위의 IN 쿼리로 한 번에 초기화한다.
+ */
+public enum MemberFetchStrategy {
+    FETCH_JOIN, ENTITY_GRAPH, BATCH;
+
+    public static MemberFetchStrategy forResultSize(long expectedRows, long fetchJoinMaxRows) {
+        return expectedRows <= fetchJoinMaxRows ? FETCH_JOIN : BATCH;
+    }
+}
@@ -1,14 +1,24 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.metrics.SqlTag;
 import study.querydsl.entity.Member;
 
+import javax.persistence.EntityGraph;
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
@@ -17,16 +27,25 @@ import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+// 조회는 기본적으로 읽기 전용 트랜잭션으로 실행한다. 하이버네이트 세션이 FlushMode.MANUAL + defaultReadOnly 가 되어
+// 엔티티 스냅샷을 만들지 않고 dirty checking 도 하지 않는다.
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final long fetchJoinMaxRows;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, MemberSearchQueryCache searchQueryCache,
+                               @Value("${member.fetch.fetch-join-max-rows:1000}") long fetchJoinMaxRows) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchQueryCache = searchQueryCache;
+        this.fetchJoinMaxRows = fetchJoinMaxRows;
     }
 
+    @Transactional
     public void save(Member member){
         em.persist(member);
     }
@@ -49,6 +68,7 @@ public class MemberJpaRepository {
     public List<Member> findByUsername(String username){
         return em.createQuery("select m from Member m where m.username = :username",Member.class)
                 .setParameter("username",username)
+                .setHint(QueryHints.HINT_CACHEABLE, true)    // 2차 캐시가 켜져 있으면 쿼리 캐시를 쓴다.
                 .getResultList();
     }
     public List<Member> findByUsername_Querydsl(String username){
@@ -86,7 +106,15 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    // 조건 조합별로 직렬화해둔 JPQL 을 재사용한다. (searchByBuilder 는 비교용으로 매번 조립한다)
     public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition){
+        return SqlTag.with("MemberJpaRepository.searchByWhereParam", () -> searchQueryCache.searchByWhereParam(condition));
+    }
+
+    // 결과를 한 번에 List 로 올리지 않고 스크롤하며 한 행씩 꺼낸다. (하이버네이트 ScrollableResults)
+    // 트랜잭션 안에서 사용하고, 다 읽으면 반드시 close 해야 커서와 커넥션이 정리된다.
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public CloseableIterator<MemberTeamDto> iterateByWhereParam(MemberSearchCondition condition, int fetchSize){
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
@@ -102,7 +130,8 @@ public class MemberJpaRepository {
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .iterate();
     }
 
     // 조립형
@@ -123,6 +152,7 @@ public class MemberJpaRepository {
     }
 
     // 엔티티 직방으로 바로 조회가능하다. 메서드 조립형은 재사용 가능하다.
+    // 응답용 조회이므로 쓰기 트랜잭션 안에서 불려도 읽기 전용 엔티티로 읽는다. 화면 출력만 한다면 searchByWhereParam(DTO)이 더 가볍다.
     public List<Member> searchEntity(MemberSearchCondition condition){
         return queryFactory
                 .selectFrom(member)
@@ -133,6 +163,52 @@ public class MemberJpaRepository {
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
+                .setHint(QueryHints.HINT_READONLY, true)
                 .fetch();
     }
+
+    // team 까지 N+1 없이 읽는다. 페이지 크기가 작으면 fetch join, 크면 배치 로딩을 쓴다.
+    // unpaged 는 결과 크기를 알 수 없으므로 배치 로딩으로 읽는다.
+    public List<Member> searchEntityWithTeam(MemberSearchCondition condition, Pageable pageable){
+        MemberFetchStrategy strategy = pageable.isUnpaged()
+                ? MemberFetchStrategy.BATCH
+                : MemberFetchStrategy.forResultSize(pageable.getPageSize(), fetchJoinMaxRows);
+        return searchEntityWithTeam(condition, strategy, pageable);
+    }
+
+    public List<Member> searchEntityWithTeam(MemberSearchCondition condition, MemberFetchStrategy strategy){
+        return searchEntityWithTeam(condition, strategy, Pageable.unpaged());
+    }
+
+    private List<Member> searchEntityWithTeam(MemberSearchCondition condition, MemberFetchStrategy strategy, Pageable pageable){
+        JPAQuery<Member> query = queryFactory.selectFrom(member);
+        if (strategy == MemberFetchStrategy.FETCH_JOIN) {
+            query.leftJoin(member.team, team).fetchJoin();
+        } else if (hasText(condition.getTeamName())) {
+            query.join(member.team, team);  // 필터용 조인만 건다.
+        }
+        if (strategy == MemberFetchStrategy.ENTITY_GRAPH) {
+            EntityGraph<Member> graph = em.createEntityGraph(Member.class);
+            graph.addAttributeNodes("team");
+            query.setHint(QueryHints.HINT_FETCHGRAPH, graph);
+        }
+        query.where(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        );
+        if (pageable.isPaged()) {
+            query.orderBy(member.id.asc())
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize());
+        }
+
+        List<Member> result = query.fetch();
+        if (strategy == MemberFetchStrategy.BATCH) {
+            // 첫 프록시를 초기화할 때 아직 로딩되지 않은 team 프록시들을 batch size 만큼 IN 쿼리로 같이 읽는다.
+            result.forEach(m -> Hibernate.initialize(m.getTeam()));
+        }
+        return result;
+    }
 }
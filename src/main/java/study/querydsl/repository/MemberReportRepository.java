@@ -0,0 +1,156 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberAgeReport;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.QMember;
+import study.querydsl.metrics.SqlTag;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 나이 비교 리포트.
+ * JPQL(5.4) 에는 윈도우 함수가 없어 평균 / 최대와 비교하려면 상관 서브쿼리를 써야 하고, DB 가 행마다 서브쿼리를 다시 돌릴 수 있다.
+ * 그래서 같은 리포트를 avg() over (partition by team_id) 같은 윈도우 함수 네이티브 SQL 로 한 번의 스캔에 계산한다.
+ * 결과가 같은지 / 얼마나 빠른지 비교할 수 있도록 기존 서브쿼리 버전(...Subquery)도 같이 둔다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberReportRepository {
+
+    // H2 는 int 의 avg 를 int 로 돌려주므로 double 로 바꿔서 평균을 낸다. (하이버네이트 avg 와 같은 결과)
+    private static final String AGE_VS_AVERAGES = "select m.member_id, m.username, m.age, t.name,"
+            + " avg(cast(m.age as double)) over () as global_avg,"
+            + " case when m.team_id is null then null else avg(cast(m.age as double)) over (partition by m.team_id) end as team_avg"
+            + " from member m left join team t on t.team_id = m.team_id"
+            + " order by m.member_id";
+
+    private static final String ABOVE_TEAM_AVERAGE = "select x.member_id, x.username, x.age, x.team_id, x.name from ("
+            + " select m.member_id, m.username, m.age, m.team_id, t.name,"
+            + " avg(cast(m.age as double)) over (partition by m.team_id) as team_avg"
+            + " from member m join team t on t.team_id = m.team_id) x"
+            + " where x.age > x.team_avg"
+            + " order by x.member_id";
+
+    private static final String AT_TEAM_MAX = "select x.member_id, x.username, x.age, x.team_id, x.name from ("
+            + " select m.member_id, m.username, m.age, m.team_id, t.name,"
+            + " max(m.age) over (partition by m.team_id) as team_max"
+            + " from member m join team t on t.team_id = m.team_id) x"
+            + " where x.age >= x.team_max"
+            + " order by x.member_id";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final QMemberTeamDto projection = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+
+    public MemberReportRepository(EntityManager em) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    /**
+     * 각 member 의 나이와 전체 평균 / 소속 팀 평균
+     */
+    public List<MemberAgeReport> ageVsAverages() {
+        List<?> rows = SqlTag.with("MemberReportRepository.ageVsAverages", () ->
+                em.createNativeQuery(AGE_VS_AVERAGES).getResultList());
+        List<MemberAgeReport> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            result.add(new MemberAgeReport(
+                    ((Number) columns[0]).longValue(),
+                    (String) columns[1],
+                    ((Number) columns[2]).intValue(),
+                    (String) columns[3],
+                    ((Number) columns[4]).doubleValue(),
+                    columns[5] == null ? null : ((Number) columns[5]).doubleValue()));
+        }
+        return result;
+    }
+
+    public List<MemberAgeReport> ageVsAveragesSubquery() {
+        QMember memberGlobal = new QMember("memberGlobal");
+        QMember memberTeam = new QMember("memberTeam");
+        List<Tuple> rows = SqlTag.with("MemberReportRepository.ageVsAveragesSubquery", () -> queryFactory
+                .select(member.id, member.username, member.age, team.name,
+                        select(memberGlobal.age.avg()).from(memberGlobal),
+                        select(memberTeam.age.avg()).from(memberTeam).where(memberTeam.team.eq(member.team)))
+                .from(member)
+                .leftJoin(member.team, team)
+                .orderBy(member.id.asc())
+                .fetch());
+        List<MemberAgeReport> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            result.add(new MemberAgeReport(row.get(0, Long.class), row.get(1, String.class), row.get(2, Integer.class),
+                    row.get(3, String.class), row.get(4, Double.class), row.get(5, Double.class)));
+        }
+        return result;
+    }
+
+    /**
+     * 소속 팀 평균 나이보다 나이가 많은 member
+     */
+    public List<MemberTeamDto> aboveTeamAverage() {
+        return SqlTag.with("MemberReportRepository.aboveTeamAverage", () ->
+                toDtos(em.createNativeQuery(ABOVE_TEAM_AVERAGE).getResultList()));
+    }
+
+    public List<MemberTeamDto> aboveTeamAverageSubquery() {
+        QMember memberSub = new QMember("memberSub");
+        return SqlTag.with("MemberReportRepository.aboveTeamAverageSubquery", () -> queryFactory
+                .select(projection)
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.gt(select(memberSub.age.avg()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch());
+    }
+
+    /**
+     * 소속 팀에서 나이가 가장 많은 member (동률이면 모두)
+     */
+    public List<MemberTeamDto> atTeamMax() {
+        return SqlTag.with("MemberReportRepository.atTeamMax", () ->
+                toDtos(em.createNativeQuery(AT_TEAM_MAX).getResultList()));
+    }
+
+    public List<MemberTeamDto> atTeamMaxSubquery() {
+        QMember memberSub = new QMember("memberSub");
+        return SqlTag.with("MemberReportRepository.atTeamMaxSubquery", () -> queryFactory
+                .select(projection)
+                .from(member)
+                .join(member.team, team)
+                .where(member.age.goe(select(memberSub.age.max()).from(memberSub).where(memberSub.team.eq(member.team))))
+                .orderBy(member.id.asc())
+                .fetch());
+    }
+
+    private static List<MemberTeamDto> toDtos(List<?> rows) {
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            result.add(new MemberTeamDto(
+                    ((Number) columns[0]).longValue(),
+                    (String) columns[1],
+                    ((Number) columns[2]).intValue(),
+                    ((Number) columns[3]).longValue(),
+                    (String) columns[4]));
+        }
+        return result;
+    }
+}
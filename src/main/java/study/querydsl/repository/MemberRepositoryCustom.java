@@ -2,7 +2,9 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
 import java.util.List;
 import org.springframework.data.domain.Page;
@@ -13,4 +15,6 @@ public interface MemberRepositoryCustom {
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex_count(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+    MemberSlice searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size);
 }
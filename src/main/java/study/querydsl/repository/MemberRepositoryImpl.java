@@ -1,20 +1,40 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.dto.UnknownTotalPage;
+import study.querydsl.metrics.SqlTag;
 
 import javax.persistence.EntityManager;
+import javax.persistence.QueryTimeoutException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -23,28 +43,34 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final MemberSearchQueryCache searchQueryCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Executor countExecutor;
+    private final long countCap;
+    private final long countTimeoutMillis;
+    private final long countQueryTimeoutMillis;
 
-    public MemberRepositoryImpl(EntityManager em){
+    public MemberRepositoryImpl(EntityManager em, MemberCountCache countCache, MemberSearchQueryCache searchQueryCache,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("memberCountExecutor") Executor countExecutor,
+                                @Value("${member.count.cap:0}") long countCap,
+                                @Value("${member.search.count-timeout-ms:500}") long countTimeoutMillis){
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.searchQueryCache = searchQueryCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.countExecutor = countExecutor;
+        this.countCap = countCap;
+        this.countTimeoutMillis = countTimeoutMillis;
+        // JDBC 쿼리 타임아웃은 초 단위이므로 올림한다. 기다리는 시간보다 짧아지지 않아 응답 직전에 count 가 취소되지 않는다.
+        this.countQueryTimeoutMillis = Math.max(1, (countTimeoutMillis + 999) / 1000) * 1000;
     }
     @Override
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition){
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        return SqlTag.with("MemberRepositoryImpl.searchByWhereParam", () -> searchQueryCache.searchByWhereParam(condition));
     }
 
     // 조립형
@@ -65,8 +91,9 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results = queryFactory
+        QueryResults<MemberTeamDto> results = SqlTag.with("MemberRepositoryImpl.searchPageSimple", () -> queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"),
                         member.username,
@@ -83,7 +110,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                 )
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .fetchResults();
+                .fetchResults());
 
         List<MemberTeamDto> content = results.getResults();
         long total = results.getTotal();
@@ -93,24 +120,62 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     // count 쿼리 최적화
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = getContent(condition, pageable);   // alt + enter = method extract
-        long total = getTotal(condition);
+        List<MemberTeamDto> content = SqlTag.with("MemberRepositoryImpl.searchPageComplex.content",
+                () -> getContent(condition, pageable));   // alt + enter = method extract
+        long total = SqlTag.with("MemberRepositoryImpl.searchPageComplex.count", () -> getTotal(condition));
 
         return new PageImpl<>(content,pageable,total);
     }
 
     private long getTotal(MemberSearchCondition condition) {
-        long total = queryFactory.select(member).from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetchCount();
-        return total;
+        return getTotal(condition, 0);
+    }
+
+    // timeoutMillis 가 0 보다 크면 count 쿼리에 JDBC 쿼리 타임아웃을 건다.
+    private long getTotal(MemberSearchCondition condition, long timeoutMillis) {
+        return cachedCount(condition, timeoutMillis, () -> countBase(member.id.count(), condition, timeoutMillis).fetchOne());
+    }
+
+    // count 쿼리 최적화 (searchPageComplex_count 는 PageableExecutionUtils 가 필요할 때만 실행한다)
+    private JPAQuery<Long> countQuery(MemberSearchCondition condition) {
+        return countBase(member.id.count(), condition, 0);
+    }
+
+    // count 쿼리는 조건에 필요한 조인만 건다. team 조건이 없으면 member 테이블만 센다.
+    // team.name 조건은 null 과 매칭되지 않으므로 left join 대신 inner join 으로 충분하다.
+    private <T> JPAQuery<T> countBase(Expression<T> select, MemberSearchCondition condition, long timeoutMillis) {
+        JPAQuery<T> query = queryFactory.select(select).from(member);
+        if (timeoutMillis > 0) {
+            query.setHint(QueryHints.SPEC_HINT_TIMEOUT, (int) timeoutMillis);   // 하이버네이트가 초 단위로 바꿔 Statement 에 건다.
+        }
+        if (hasText(condition.getTeamName())) {
+            query.join(member.team, team);
+        }
+        return query.where(
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        );
+    }
+
+    // 같은 조건의 count 는 캐시에서 꺼내고, member.count.cap 이 설정되어 있으면 cap 건까지만 센다.
+    private long cachedCount(MemberSearchCondition condition, LongSupplier exactCount) {
+        return cachedCount(condition, 0, exactCount);
+    }
+
+    private long cachedCount(MemberSearchCondition condition, long timeoutMillis, LongSupplier exactCount) {
+        return countCache.get(condition, () -> countCap > 0 && exceedsCap(condition, timeoutMillis) ? countCap : exactCount.getAsLong());
+    }
+
+    // cap 번째 행이 존재하는지만 확인하므로 넓은 조건이라도 cap 건 이상은 읽지 않는다.
+    private boolean exceedsCap(MemberSearchCondition condition, long timeoutMillis) {
+        return countBase(member.id, condition, timeoutMillis)
+                .offset(countCap)
+                .limit(1)
+                .fetchFirst() != null;
     }
 
     private List<MemberTeamDto> getContent(MemberSearchCondition condition, Pageable pageable) {
@@ -137,17 +202,109 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     // count 쿼리 최적화
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDto> searchPageComplex_count(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = getContent(condition, pageable);   // alt + enter = method extract
-        JPAQuery<Member> countQuery = queryFactory.select(member).from(member)
+        List<MemberTeamDto> content = SqlTag.with("MemberRepositoryImpl.searchPageComplex_count.content",
+                () -> getContent(condition, pageable));   // alt + enter = method extract
+        JPAQuery<Long> countQuery = countQuery(condition);
+
+        return PageableExecutionUtils.getPage(content,pageable, () -> SqlTag.with(
+                "MemberRepositoryImpl.searchPageComplex_count.count", () -> cachedCount(condition, countQuery::fetchOne)));
+    }
+
+    // content 와 count 를 서로 다른 커넥션에서 동시에 실행한다. 응답 시간이 합이 아니라 둘 중 긴 쪽이 된다.
+    // count 가 제한 시간을 넘기면 기다리지 않고 전체 건수 없이 content 만 돌려준다. (count 결과는 늦게라도 캐시에 남는다)
+    // 버려진 count 가 count 스레드와 커넥션을 계속 잡고 있지 않도록 count 쿼리에는 JDBC 쿼리 타임아웃을 건다.
+    // 쿼리마다 읽기 전용 트랜잭션을 직접 열기 때문에 메서드에는 @Transactional 을 붙이지 않는다.
+    @Override
+    public Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        // 호출자 트랜잭션이 있으면 다른 커넥션에서는 커밋 전 데이터가 보이지 않으므로 순차로 실행한다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return searchPageComplex(condition, pageable);
+        }
+
+        CompletableFuture<Long> total;
+        try {
+            total = CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status ->
+                    SqlTag.with("MemberRepositoryImpl.searchPageParallel.count",
+                            () -> getTotal(condition, countQueryTimeoutMillis))), countExecutor);
+        } catch (RejectedExecutionException e) {
+            return searchPageComplex(condition, pageable);
+        }
+        List<MemberTeamDto> content = readOnlyTransaction.execute(status ->
+                SqlTag.with("MemberRepositoryImpl.searchPageParallel.content", () -> getContent(condition, pageable)));
+
+        // 첫 페이지가 덜 찼으면 전체 건수는 content 크기 그 자체다.
+        if (pageable.getOffset() == 0 && content.size() < pageable.getPageSize()) {
+            return new PageImpl<>(content, pageable, content.size());
+        }
+        try {
+            return new PageImpl<>(content, pageable, total.get(countTimeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return new UnknownTotalPage<>(content, pageable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new UnknownTotalPage<>(content, pageable);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryTimeoutException) {
+                return new UnknownTotalPage<>(content, pageable);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // keyset 페이징 : offset 없이 마지막 행 다음부터 seek 하므로 페이지가 깊어져도 비용이 같다.
+    @Override
+    @Transactional(readOnly = true)
+    public MemberSlice searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        List<MemberTeamDto> content = SqlTag.with("MemberRepositoryImpl.searchSlice", () -> queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"),
+                        member.username,
+                        member.age,
+                        team.id.as("teamId"),
+                        team.name.as("teamName")))
+                .from(member)
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+                        ageLoe(condition.getAgeLoe()),
+                        afterCursor(cursor)
+                )
+                .orderBy(sliceOrder(cursor.getOrder()))
+                .limit(size + 1)    // 한 건 더 읽어서 다음 페이지 존재 여부를 판단
+                .fetch());
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        String nextCursor = hasNext
+                ? MemberCursor.after(cursor.getOrder(), content.get(content.size() - 1)).encode()
+                : null;
+        return new MemberSlice(content, hasNext, nextCursor);
+    }
+
+    private BooleanExpression afterCursor(MemberCursor cursor) {
+        if (cursor.isFirst()) {
+            return null;
+        }
+        if (cursor.getOrder() == MemberCursor.Order.AGE) {
+            return member.age.gt(cursor.getAge())
+                    .or(member.age.eq(cursor.getAge()).and(member.id.gt(cursor.getMemberId())));
+        }
+        return member.id.gt(cursor.getMemberId());
+    }
 
-        return PageableExecutionUtils.getPage(content,pageable, countQuery::fetchCount);
+    private OrderSpecifier<?>[] sliceOrder(MemberCursor.Order order) {
+        if (order == MemberCursor.Order.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
     }
 }
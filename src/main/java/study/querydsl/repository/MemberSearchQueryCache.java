@@ -0,0 +1,133 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * searchByWhereParam 쿼리 모양(shape) 캐시.
+ * 조건 4개 중 어떤 필드가 채워졌는지에 따라 JPQL 은 16가지뿐이므로, 모양별로 한 번만 querydsl 로 직렬화해두고
+ * 요청마다 파라미터 값만 바인딩한다. JPQL 문자열이 매번 같아서 하이버네이트 쿼리 플랜 캐시도 그대로 적중한다.
+ */
+@Component
+public class MemberSearchQueryCache {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    // 템플릿 직렬화용 값. 값이 같으면 querydsl 이 파라미터 하나로 합치기 때문에 서로 달라야 한다.
+    private static final String USERNAME_PLACEHOLDER = "#username";
+    private static final String TEAM_NAME_PLACEHOLDER = "#teamName";
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final QMemberTeamDto projection = new QMemberTeamDto(
+            member.id.as("memberId"),
+            member.username,
+            member.age,
+            team.id.as("teamId"),
+            team.name.as("teamName"));
+    private final AtomicReferenceArray<String> templates = new AtomicReferenceArray<>(16);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchQueryCache(EntityManager em) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        Query query = em.createQuery(template(shape));
+
+        // 템플릿의 ?1, ?2 ... 는 where 절 순서(username, teamName, ageGoe, ageLoe)대로 붙어있다.
+        int position = 1;
+        if ((shape & USERNAME) != 0) {
+            query.setParameter(position++, condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter(position++, condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter(position++, condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter(position, condition.getAgeLoe());
+        }
+
+        List<?> rows = query.getResultList();
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(projection.newInstance((Object[]) row));
+        }
+        return result;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private String template(int shape) {
+        String jpql = templates.get(shape);
+        if (jpql != null) {
+            hits.increment();
+            return jpql;
+        }
+        misses.increment();
+        jpql = queryFactory
+                .select(projection)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        (shape & USERNAME) != 0 ? member.username.eq(USERNAME_PLACEHOLDER) : null,
+                        (shape & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PLACEHOLDER) : null,
+                        (shape & AGE_GOE) != 0 ? member.age.goe(Integer.MIN_VALUE) : null,
+                        (shape & AGE_LOE) != 0 ? member.age.loe(Integer.MAX_VALUE) : null
+                )
+                .toString();
+        templates.compareAndSet(shape, null, jpql);
+        return jpql;
+    }
+
+    private static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+}
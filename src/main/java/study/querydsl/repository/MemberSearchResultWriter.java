@@ -0,0 +1,115 @@
+package study.querydsl.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.sql.SQLQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.metrics.SqlTag;
+import study.querydsl.sql.SMember;
+import study.querydsl.sql.STeam;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * searchByWhereParam 과 같은 조건 / 같은 모양(MemberTeamDto 배열)의 결과를 JsonGenerator 에 바로 쓴다.
+ * 하이버네이트를 거치지 않고 querydsl-sql 로 조회한 ResultSet 의 컬럼 값을 getLong / getInt 로 꺼내 그대로 쓰므로
+ * 행마다 생기던 Object[], MemberTeamDto, 박싱된 Long, Jackson 의 리플렉션 직렬화가 없다. (문자열 컬럼은 드라이버가 만든 String 을 쓴다)
+ * 필드 이름은 미리 인코딩해두고, 생성기가 JSON / CBOR / Smile 어느 것이든 같은 코드로 쓴다.
+ */
+@Repository
+@Transactional(readOnly = true)     // SpringConnectionProvider 는 트랜잭션 커넥션만 쓴다.
+public class MemberSearchResultWriter {
+
+    private static final SMember sMember = SMember.member;
+    private static final STeam sTeam = STeam.team;
+
+    private static final SerializableString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializableString USERNAME = new SerializedString("username");
+    private static final SerializableString AGE = new SerializedString("age");
+    private static final SerializableString TEAM_ID = new SerializedString("teamId");
+    private static final SerializableString TEAM_NAME = new SerializedString("teamName");
+
+    private static final int FLUSH_ROWS = 500;
+
+    private final SQLQueryFactory sqlQueryFactory;
+
+    public MemberSearchResultWriter(SQLQueryFactory sqlQueryFactory) {
+        this.sqlQueryFactory = sqlQueryFactory;
+    }
+
+    /**
+     * 결과를 배열 하나로 쓰고 쓴 행 수를 돌려준다. 생성기는 닫지 않는다.
+     */
+    public long writeByWhereParam(MemberSearchCondition condition, JsonGenerator generator) throws IOException {
+        ResultSet rs = SqlTag.with("MemberSearchResultWriter.writeByWhereParam", () -> sqlQueryFactory
+                .from(sMember)
+                .leftJoin(sTeam).on(sTeam.teamId.eq(sMember.teamId))
+                .where(where(condition))
+                .getResults(sMember.memberId, sMember.username, sMember.age, sTeam.teamId, sTeam.name));
+        long count = 0;
+        try (rs) {
+            generator.writeStartArray();
+            while (rs.next()) {
+                generator.writeStartObject();
+                generator.writeFieldName(MEMBER_ID);
+                generator.writeNumber(rs.getLong(1));
+                generator.writeFieldName(USERNAME);
+                generator.writeString(rs.getString(2));
+                generator.writeFieldName(AGE);
+                generator.writeNumber(rs.getInt(3));
+                generator.writeFieldName(TEAM_ID);
+                long teamId = rs.getLong(4);
+                if (rs.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(teamId);
+                }
+                generator.writeFieldName(TEAM_NAME);
+                generator.writeString(rs.getString(5));   // null 이면 writeNull 과 같다.
+                generator.writeEndObject();
+                if (++count % FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            generator.flush();
+        } catch (SQLException e) {
+            throw new IllegalStateException("member search result could not be read", e);
+        }
+        return count;
+    }
+
+    private static Predicate[] where(MemberSearchCondition condition) {
+        return new Predicate[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private static BooleanExpression usernameEq(String username) {
+        return hasText(username) ? sMember.username.eq(username) : null;
+    }
+
+    private static BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? sTeam.name.eq(teamName) : null;
+    }
+
+    private static BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? sMember.age.goe(ageGoe) : null;
+    }
+
+    private static BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? sMember.age.loe(ageLoe) : null;
+    }
+}
@@ -0,0 +1,213 @@
+package study.querydsl.repository;
+
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.dml.SQLInsertClause;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.NoopOptimizer;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Member;
+import study.querydsl.event.MemberChangedEvent;
+import study.querydsl.metrics.SqlTag;
+import study.querydsl.sql.SMember;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 엔티티 생명주기를 거치지 않는 querydsl-sql 쓰기. 대량 적재처럼 영속성 컨텍스트가 필요 없는 곳에서 쓴다.
+ * 같은 트랜잭션 매니저를 쓰므로 JPA 쓰기와 한 트랜잭션으로 묶인다. 하이버네이트가 네이티브 쿼리 전에 하듯이 쓰기 전에
+ * 영속성 컨텍스트를 flush 해서, 먼저 persist 한 Team 을 참조하거나 JPA 변경이 나중에 덮어쓰는 일이 없게 한다.
+ * 다만 영속성 컨텍스트와 2차 캐시는 이 쓰기를 모르므로
+ * Member 2차 캐시와 쿼리 캐시를 비우고 BULK 이벤트를 발행해서 count 캐시 / 인덱스 / 통계가 다시 읽게 한다.
+ *
+ * member_id 는 하이버네이트와 같은 member_seq 를 쓴다. pooled-lo 에서 시퀀스 값은 블록의 시작이므로
+ * 시퀀스 한 번에 increment_size 개의 id 를 잡아 하이버네이트가 나눠주는 id 와 겹치지 않는다.
+ */
+@Repository
+@Transactional
+public class MemberSqlRepository {
+
+    private static final SMember sMember = SMember.member;
+    private static final String MERGE_BY_USERNAME = "merge into member m"
+            + " using (select cast(? as varchar) username, cast(? as int) age, cast(? as bigint) team_id, cast(? as bigint) member_id) s"
+            + " on (m.username = s.username)"
+            + " when matched then update set age = s.age, team_id = s.team_id"
+            + " when not matched then insert (member_id, username, age, team_id) values (s.member_id, s.username, s.age, s.team_id)";
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final ApplicationEventPublisher publisher;
+    private final int idBlockSize;
+
+    public MemberSqlRepository(SQLQueryFactory sqlQueryFactory, EntityManager em, EntityManagerFactory emf,
+                               ApplicationEventPublisher publisher) {
+        this.sqlQueryFactory = sqlQueryFactory;
+        this.em = em;
+        this.emf = emf;
+        this.publisher = publisher;
+        this.idBlockSize = idBlockSize(emf);
+    }
+
+    /**
+     * SQLInsertClause.addBatch 로 JDBC 배치 insert 한다. 만든 member_id 를 요청 순서대로 돌려준다.
+     */
+    public List<Long> insertBatch(List<MemberIngestRequest> requests) {
+        em.flush();
+        List<Long> ids = insertRows(requests);
+        afterWrite();
+        return ids;
+    }
+
+    private List<Long> insertRows(List<MemberIngestRequest> requests) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = nextIds(requests.size());
+        SqlTag.with("MemberSqlRepository.insertBatch", () -> {
+            SQLInsertClause insert = sqlQueryFactory.insert(sMember);
+            for (int i = 0; i < requests.size(); i++) {
+                MemberIngestRequest request = requests.get(i);
+                insert.set(sMember.memberId, ids.get(i))
+                        .set(sMember.username, request.getUsername())
+                        .set(sMember.age, request.getAge())
+                        .set(sMember.teamId, request.getTeamId())
+                        .addBatch();
+            }
+            return insert.execute();
+        });
+        return ids;
+    }
+
+    /**
+     * username 이 같은 member 가 있으면 age / team 을 고치고, 없으면 새로 넣는다.
+     * 조회 후 update / insert 로 나누면 그 사이에 다른 트랜잭션이 같은 username 을 넣을 수 있으므로 행마다 MERGE ... USING 한 문장으로
+     * 보낸다. (H2 의 MERGE ... KEY(username) 는 member_id 까지 덮어써서 PK 가 바뀌므로 쓰지 않는다)
+     * 아직 커밋되지 않은 같은 새 username 끼리는 서로 보이지 않으므로, 그것까지 막으려면 username 유니크 제약이 필요하다.
+     * insert 될 때 쓸 member_id 는 미리 잡아두고, 쓰이지 않은 id 는 버린다.
+     * 고친 행의 엔티티가 영속성 컨텍스트에 남아 있으면 DB 와 다르므로 끝나고 비운다.
+     */
+    public UpsertResult upsertByUsername(List<MemberIngestRequest> requests) {
+        if (requests.isEmpty()) {
+            return new UpsertResult(0, 0);
+        }
+        em.flush();
+        // 같은 username 이 여러 번 오면 마지막 요청이 이긴다.
+        Map<String, MemberIngestRequest> byUsername = new LinkedHashMap<>();
+        for (MemberIngestRequest request : requests) {
+            byUsername.put(request.getUsername(), request);
+        }
+        List<Long> ids = nextIds(byUsername.size());
+
+        long affected = SqlTag.with("MemberSqlRepository.upsertByUsername", () -> {
+            Connection connection = sqlQueryFactory.getConnection();     // 트랜잭션 커넥션이므로 닫지 않는다.
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_BY_USERNAME)) {
+                int i = 0;
+                for (MemberIngestRequest request : byUsername.values()) {
+                    merge.setString(1, request.getUsername());
+                    merge.setInt(2, request.getAge());
+                    merge.setObject(3, request.getTeamId(), Types.BIGINT);
+                    merge.setLong(4, ids.get(i++));
+                    merge.addBatch();
+                }
+                return Arrays.stream(merge.executeBatch()).asLongStream().sum();
+            } catch (SQLException e) {
+                throw sqlQueryFactory.getConfiguration().translate(MERGE_BY_USERNAME, List.of(), e);
+            }
+        });
+        // 미리 잡은 id 로 들어간 행이 insert 된 행이다.
+        long inserted = SqlTag.with("MemberSqlRepository.upsertByUsername.inserted", () -> sqlQueryFactory
+                .select(sMember.memberId.count())
+                .from(sMember)
+                .where(sMember.memberId.in(ids))
+                .fetchOne());
+        em.clear();
+        afterWrite();
+        return new UpsertResult(affected - inserted, inserted);
+    }
+
+    @Transactional(readOnly = true)
+    public long count() {
+        return sqlQueryFactory.select(sMember.memberId.count()).from(sMember).fetchOne();
+    }
+
+    // 시퀀스 한 번에 idBlockSize 개씩 잡는다. (pooled-lo : 시퀀스 값 ~ 시퀀스 값 + increment_size - 1)
+    private List<Long> nextIds(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            Long blockStart = SqlTag.with("MemberSqlRepository.nextIds", () -> sqlQueryFactory
+                    .select(SQLExpressions.nextval("member_seq"))
+                    .fetchOne());
+            for (int i = 0; i < idBlockSize && ids.size() < count; i++) {
+                ids.add(blockStart + i);
+            }
+        }
+        return ids;
+    }
+
+    private void afterWrite() {
+        evictMember();
+        // 커밋 전에 다른 트랜잭션이 옛 값을 다시 캐시에 올릴 수 있으므로 트랜잭션이 끝난 뒤 한 번 더 비운다.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictMember();
+                }
+            });
+        }
+        publisher.publishEvent(MemberChangedEvent.bulk());
+    }
+
+    // 쿼리 캐시는 테이블별 update timestamp 로 무효화되는데 JDBC 쓰기는 그것을 올리지 못하므로 쿼리 리전도 비운다.
+    private void evictMember() {
+        Cache cache = emf.getCache();
+        cache.evict(Member.class);
+        cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+    }
+
+    private static int idBlockSize(EntityManagerFactory emf) {
+        IdentifierGenerator generator = emf.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel().entityPersister(Member.class).getIdentifierGenerator();
+        Optimizer optimizer = ((SequenceStyleGenerator) generator).getOptimizer();
+        if (optimizer instanceof PooledLoOptimizer || optimizer instanceof NoopOptimizer) {
+            return optimizer.getIncrementSize();
+        }
+        throw new IllegalStateException("member_seq optimizer must be pooled-lo or none to share ids with querydsl-sql, but was "
+                + optimizer.getClass().getSimpleName());
+    }
+
+    @Getter
+    @ToString
+    public static class UpsertResult {
+        private final long updated;
+        private final long inserted;
+
+        UpsertResult(long updated, long inserted) {
+            this.updated = updated;
+            this.inserted = inserted;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.event.MemberChangedEvent;
+import study.querydsl.event.TeamChangedEvent;
+
+/**
+ * 커밋된 Member / Team 변경을 MemberStatsRepository 에 넘긴다.
+ * 커밋 후 리스너는 조건을 보기 전에 행마다 트랜잭션 콜백을 걸기 때문에, 꺼져 있을 때는 빈 자체를 만들지 않는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "member.stats", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class MemberStatsEventListener {
+
+    private final MemberStatsRepository memberStatsRepository;
+
+    // 롤백된 변경이 섞이지 않도록 커밋 후에 반영한다. 트랜잭션 밖에서 발행된 이벤트(벌크)는 바로 반영한다.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        memberStatsRepository.onMemberChanged(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamChanged(TeamChangedEvent event) {
+        memberStatsRepository.onTeamChanged(event);
+    }
+}
@@ -0,0 +1,382 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStats;
+import study.querydsl.event.MemberChangedEvent;
+import study.querydsl.event.TeamChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀별 member 통계 (인원, 평균 나이, 10살 단위 나이 분포). (member.stats.enabled)
+ * 적재할 때는 팀마다 member 를 읽는 쿼리를 나누어 병렬로 돌리고, 이후에는 커밋된 Member / Team 변경 이벤트로
+ * 합계를 고쳐서 조회는 메모리만 읽는다. 팀 없는 member 는 세지 않는다.
+ *
+ * 이전 값을 엔티티에서 받지 않도록 member 마다 (팀, age) 를 따로 들고 있다가 새 값과의 차이만큼 합계를 고친다.
+ * 그래서 같은 이벤트를 두 번 적용해도 결과가 같고, 재적재는 락 밖에서 새 묶음을 채운 뒤 그동안 들어온 이벤트를 다시 적용해서 바꿔 끼운다.
+ * 벌크 연산이 오면 다시 적재하고, 그동안은 마지막 집계를 그대로 돌려준다. 꺼져 있거나 첫 적재 전에는 DB 에서 바로 집계한다.
+ * 꺼져 있으면 이벤트 리스너(MemberStatsEventListener)와 스레드를 만들지 않아서 쓰기마다 커밋 후 콜백이 걸리지 않는다.
+ */
+@Slf4j
+@Repository
+public class MemberStatsRepository {
+
+    private static final long RETRY_INITIAL_MILLIS = 1_000;
+    private static final long RETRY_MAX_MILLIS = 60_000;
+
+    private final boolean enabled;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readTransaction;
+    private final Executor partitionExecutor;
+    private final ScheduledExecutorService rebuildExecutor;     // 꺼져 있으면 null
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildMutex = new Object();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicLong rebuildRequests = new AtomicLong();
+    private volatile boolean stale = true;
+    private long retryDelayMillis = RETRY_INITIAL_MILLIS;     // rebuildMutex
+
+    // 아래 둘은 lock 으로 지킨다. pending 은 재적재 중에만 있고 그동안 들어온 이벤트를 모아둔다.
+    private volatile Snapshot snapshot;
+    private List<Object> pending;
+
+    public MemberStatsRepository(@Value("${member.stats.enabled:false}") boolean enabled,
+                                 EntityManager em, PlatformTransactionManager transactionManager,
+                                 @Value("${member.stats.parallelism:4}") int parallelism) {
+        this.enabled = enabled;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        if (!enabled) {
+            // 가끔 오는 /stats 만 DB 에서 집계하므로 스레드를 띄우지 않고 호출한 스레드에서 팀별로 차례로 읽는다.
+            this.partitionExecutor = Runnable::run;
+            this.rebuildExecutor = null;
+            return;
+        }
+        this.partitionExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "member-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-stats-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<TeamStats> teamStats() {
+        Snapshot current = snapshot;
+        if (!enabled || current == null) {
+            return aggregateFromDatabase();
+        }
+        lock.readLock().lock();
+        try {
+            return current.stats();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && !stale;
+    }
+
+    /**
+     * 팀 목록을 읽고 팀마다 (age, count) 집계를 각자의 읽기 전용 트랜잭션으로 병렬 실행한다. (꺼져 있으면 차례로)
+     */
+    public List<TeamStats> aggregateFromDatabase() {
+        List<CompletableFuture<Aggregate>> partitions = new ArrayList<>();
+        for (Tuple row : teams()) {
+            Long teamId = row.get(team.id);
+            String teamName = row.get(team.name);
+            partitions.add(CompletableFuture.supplyAsync(
+                    () -> readTransaction.execute(status -> aggregateTeam(teamId, teamName)), partitionExecutor));
+        }
+        return partitions.stream().map(CompletableFuture::join).map(Aggregate::snapshot).collect(Collectors.toList());
+    }
+
+    private List<Tuple> teams() {
+        return readTransaction.execute(status -> queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .orderBy(team.id.asc())
+                .fetch());
+    }
+
+    private Aggregate aggregateTeam(Long teamId, String teamName) {
+        Aggregate aggregate = new Aggregate(teamId, teamName);
+        List<Tuple> ages = queryFactory
+                .select(member.age, member.count())
+                .from(member)
+                .where(member.team.id.eq(teamId))
+                .groupBy(member.age)
+                .fetch();
+        for (Tuple row : ages) {
+            aggregate.add(row.get(member.age), row.get(member.count()));
+        }
+        return aggregate;
+    }
+
+    // 팀마다 (member id, age) 를 병렬로 읽어 새 묶음을 만든다.
+    private Snapshot load() {
+        List<CompletableFuture<List<Tuple>>> partitions = new ArrayList<>();
+        List<Tuple> teams = teams();
+        for (Tuple row : teams) {
+            Long teamId = row.get(team.id);
+            partitions.add(CompletableFuture.supplyAsync(() -> readTransaction.execute(status -> queryFactory
+                    .select(member.id, member.age)
+                    .from(member)
+                    .where(member.team.id.eq(teamId))
+                    .fetch()), partitionExecutor));
+        }
+        Snapshot loaded = new Snapshot();
+        for (int i = 0; i < teams.size(); i++) {
+            Long teamId = teams.get(i).get(team.id);
+            loaded.team(teamId, teams.get(i).get(team.name));
+            for (Tuple row : partitions.get(i).join()) {
+                loaded.put(row.get(member.id), teamId, row.get(member.age));
+            }
+        }
+        return loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            requestRebuild();
+        }
+    }
+
+    // 커밋된 변경만 MemberStatsEventListener 가 넘겨준다.
+    void onMemberChanged(MemberChangedEvent event) {
+        if (event.getType() == MemberChangedEvent.Type.BULK || !apply(event)) {
+            requestRebuild();
+        }
+    }
+
+    void onTeamChanged(TeamChangedEvent event) {
+        apply(event);
+    }
+
+    // 연속된 벌크 이벤트는 한 번의 재적재로 합친다.
+    public void requestRebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildRequests.incrementAndGet();
+        stale = true;
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rebuildMutex) {
+            rebuildScheduled.set(false);
+            long request = rebuildRequests.get();
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Snapshot loaded;
+            try {
+                loaded = load();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                retryLater(e);
+                return;
+            }
+
+            boolean complete = true;
+            lock.writeLock().lock();
+            try {
+                for (Object event : pending) {
+                    complete &= loaded.apply(event);
+                }
+                pending = null;
+                snapshot = loaded;
+                if (complete && rebuildRequests.get() == request) {
+                    stale = false;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            retryDelayMillis = RETRY_INITIAL_MILLIS;
+            if (!complete) {
+                requestRebuild();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (enabled) {
+            rebuildExecutor.shutdownNow();
+            ((ExecutorService) partitionExecutor).shutdownNow();
+        }
+    }
+
+    private void retryLater(RuntimeException e) {
+        long delay = retryDelayMillis;
+        retryDelayMillis = Math.min(delay * 2, RETRY_MAX_MILLIS);
+        log.warn("member stats rebuild failed, retrying in {}ms. the last stats are served until then", delay, e);
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(this::rebuild, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 지금 집계에 반영하고, 재적재 중이면 적재 결과에도 다시 적용하도록 모아둔다.
+    private boolean apply(Object event) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(event);
+            }
+            return snapshot == null || snapshot.apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 한 번 적재한 집계와 member 별 (팀, age). 재적재는 새 묶음을 만들어 바꿔 끼운다.
+     */
+    private static class Snapshot {
+        private final Map<Long, Aggregate> aggregates = new HashMap<>();
+        private final Map<Long, Membership> members = new HashMap<>();
+
+        // 이름을 모르는 새 팀에 들어간 Member 라 반영하지 못했으면 false
+        boolean apply(Object event) {
+            if (event instanceof TeamChangedEvent) {
+                TeamChangedEvent changed = (TeamChangedEvent) event;
+                if (changed.isRemoved()) {
+                    aggregates.remove(changed.getTeamId());     // 팀을 지우려면 member 가 먼저 빠져 있어야 한다.
+                } else {
+                    team(changed.getTeamId(), changed.getName());
+                }
+                return true;
+            }
+            MemberChangedEvent changed = (MemberChangedEvent) event;
+            if (changed.getType() == MemberChangedEvent.Type.REMOVE || changed.getTeamId() == null) {
+                remove(changed.getMemberId());
+                return true;
+            }
+            if (!aggregates.containsKey(changed.getTeamId())) {
+                if (changed.getTeamName() == null) {
+                    remove(changed.getMemberId());
+                    return false;
+                }
+                team(changed.getTeamId(), changed.getTeamName());
+            }
+            put(changed.getMemberId(), changed.getTeamId(), changed.getAge());
+            return true;
+        }
+
+        void team(Long teamId, String teamName) {
+            Aggregate aggregate = aggregates.get(teamId);
+            if (aggregate == null) {
+                aggregates.put(teamId, new Aggregate(teamId, teamName));
+            } else {
+                aggregate.teamName = teamName;
+            }
+        }
+
+        void put(Long memberId, Long teamId, int age) {
+            remove(memberId);
+            members.put(memberId, new Membership(teamId, age));
+            aggregates.get(teamId).add(age, 1);
+        }
+
+        void remove(Long memberId) {
+            Membership previous = members.remove(memberId);
+            if (previous != null) {
+                Aggregate aggregate = aggregates.get(previous.teamId);
+                if (aggregate != null) {
+                    aggregate.add(previous.age, -1);
+                }
+            }
+        }
+
+        List<TeamStats> stats() {
+            return aggregates.values().stream()
+                    .map(Aggregate::snapshot)
+                    .sorted(Comparator.comparing(TeamStats::getTeamId))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static class Membership {
+        private final Long teamId;
+        private final int age;
+
+        Membership(Long teamId, int age) {
+            this.teamId = teamId;
+            this.age = age;
+        }
+    }
+
+    private static class Aggregate {
+        private final Long teamId;
+        private String teamName;
+        private final long[] histogram = new long[TeamStats.BUCKETS];
+        private long count;
+        private long ageSum;
+
+        Aggregate(Long teamId, String teamName) {
+            this.teamId = teamId;
+            this.teamName = teamName;
+        }
+
+        void add(int age, long members) {
+            count += members;
+            ageSum += age * members;
+            histogram[TeamStats.bucketOf(age)] += members;
+        }
+
+        TeamStats snapshot() {
+            return new TeamStats(teamId, teamName, count, ageSum, histogram.clone());
+        }
+    }
+}
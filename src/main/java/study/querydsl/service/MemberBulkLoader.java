@@ -0,0 +1,123 @@
+package study.querydsl.service;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대량 member 적재기.
+ * member 를 chunk 단위 트랜잭션으로 나누어 병렬로 넣고, chunk 안에서는 batch_size 마다 flush / clear 해서
+ * JDBC 배치로 내보내면서 영속성 컨텍스트가 커지지 않도록 한다.
+ * member i 는 username = "member" + i, age = i % 100, 팀은 순서대로 돌아가며 배정된다.
+ */
+@Slf4j
+@Service
+public class MemberBulkLoader {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int flushSize;
+
+    public MemberBulkLoader(EntityManager em, PlatformTransactionManager transactionManager,
+                            @Value("${member.loader.chunk-size:10000}") int chunkSize,
+                            @Value("${member.loader.parallelism:4}") int parallelism,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int flushSize) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.flushSize = flushSize;
+    }
+
+    public LoadReport load(int teamCount, int memberCount) {
+        long start = System.nanoTime();
+        List<Long> teamIds = transactionTemplate.execute(status -> persistTeams(teamCount));
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int from = 0; from < memberCount; from += chunkSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + chunkSize, memberCount);
+                chunks.add(executor.submit(() -> transactionTemplate.executeWithoutResult(
+                        status -> persistMembers(teamIds, chunkFrom, chunkTo))));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("member loading interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("member loading failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LoadReport report = new LoadReport(teamCount, memberCount, System.nanoTime() - start);
+        log.info("bulk load finished : {}", report);
+        return report;
+    }
+
+    private List<Long> persistTeams(int teamCount) {
+        List<Long> teamIds = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team(teamName(i));
+            em.persist(team);
+            teamIds.add(team.getId());
+        }
+        return teamIds;
+    }
+
+    private void persistMembers(List<Long> teamIds, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Member member = new Member("member" + i, i % 100);
+            if (!teamIds.isEmpty()) {
+                // 생성자로 팀을 넣으면 team.memberList 를 초기화하므로 프록시 참조만 세팅한다.
+                member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+            }
+            em.persist(member);
+            if ((i - from + 1) % flushSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+    }
+
+    // 팀 두 개면 기존과 같이 teamA, teamB
+    private static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+
+    @Getter
+    @ToString
+    public static class LoadReport {
+        private final int teams;
+        private final int members;
+        private final long elapsedMillis;
+        private final long rowsPerSecond;
+
+        LoadReport(int teams, int members, long elapsedNanos) {
+            this.teams = teams;
+            this.members = members;
+            this.elapsedMillis = elapsedNanos / 1_000_000;
+            this.rowsPerSecond = elapsedNanos > 0 ? (teams + members) * 1_000_000_000L / elapsedNanos : 0;
+        }
+    }
+}
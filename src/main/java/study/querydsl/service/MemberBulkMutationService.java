@@ -0,0 +1,185 @@
+package study.querydsl.service;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.event.MemberChangedEvent;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 벌크 update / delete 를 member_id 구간(chunk) 단위로 나누어 실행한다.
+ * 한 문장으로 전체를 바꾸면 잠금 범위와 트랜잭션이 커지므로 chunk 마다 커밋하고, 구간이 겹치지 않으므로 병렬로도 돌릴 수 있다.
+ * 벌크 연산은 영속성 컨텍스트를 거치지 않으므로 호출자의 영속성 컨텍스트는 끝나고 비운다.
+ * 호출자 트랜잭션이 같은 행을 잡고 있으면 chunk 트랜잭션이 기다리게 되므로 트랜잭션 밖에서 호출하는 것을 권장한다.
+ */
+@Slf4j
+@Service
+public class MemberBulkMutationService {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final ApplicationEventPublisher publisher;
+    private final long chunkSize;
+    private final int parallelism;
+
+    public MemberBulkMutationService(EntityManager em, PlatformTransactionManager transactionManager,
+                                     ApplicationEventPublisher publisher,
+                                     @Value("${member.bulk.chunk-size:1000}") long chunkSize,
+                                     @Value("${member.bulk.parallelism:1}") int parallelism) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.publisher = publisher;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    public BulkReport addAge(MemberSearchCondition condition, int delta, Consumer<BulkProgress> listener) {
+        return run("addAge", condition, listener, range -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(range, bulkPredicate(condition))
+                .execute());
+    }
+
+    public BulkReport delete(MemberSearchCondition condition, Consumer<BulkProgress> listener) {
+        return run("delete", condition, listener, range -> queryFactory
+                .delete(member)
+                .where(range, bulkPredicate(condition))
+                .execute());
+    }
+
+    private BulkReport run(String operation, MemberSearchCondition condition, Consumer<BulkProgress> listener,
+                           Function<BooleanExpression, Long> mutation) {
+        long start = System.nanoTime();
+        Tuple bounds = chunkTransaction.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(bulkPredicate(condition))
+                .fetchOne());
+        Long minId = bounds != null ? bounds.get(member.id.min()) : null;
+        Long maxId = bounds != null ? bounds.get(member.id.max()) : null;
+        if (minId == null) {
+            return new BulkReport(operation, 0, 0, System.nanoTime() - start);
+        }
+
+        List<BooleanExpression> ranges = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += chunkSize) {
+            ranges.add(member.id.between(from, Math.min(from + chunkSize - 1, maxId)));
+        }
+
+        AtomicInteger chunksDone = new AtomicInteger();
+        AtomicLong affected = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, ranges.size())));
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (BooleanExpression range : ranges) {
+                chunks.add(executor.submit(() -> {
+                    long rows = chunkTransaction.execute(status -> mutation.apply(range));
+                    publisher.publishEvent(MemberChangedEvent.bulk());
+                    BulkProgress progress = new BulkProgress(operation, chunksDone.incrementAndGet(), ranges.size(),
+                            affected.addAndGet(rows), System.nanoTime() - start);
+                    log.debug("bulk progress : {}", progress);
+                    if (listener != null) {
+                        listener.accept(progress);
+                    }
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("bulk " + operation + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("bulk " + operation + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.clear();     // 호출자 영속성 컨텍스트의 엔티티는 이제 DB 와 다르다.
+        }
+        BulkReport report = new BulkReport(operation, ranges.size(), affected.get(), System.nanoTime() - start);
+        log.info("bulk {} finished : {}", operation, report);
+        return report;
+    }
+
+    // 벌크 JPQL 에는 조인을 쓸 수 없으므로 팀 조건은 서브쿼리로 건다.
+    private Predicate bulkPredicate(MemberSearchCondition condition) {
+        return ExpressionUtils.allOf(
+                hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+                hasText(condition.getTeamName())
+                        ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(condition.getTeamName())))
+                        : null,
+                condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null);
+    }
+
+    @Getter
+    @ToString
+    public static class BulkProgress {
+        private final String operation;
+        private final int chunksDone;
+        private final int chunksTotal;
+        private final long rowsAffected;
+        private final long elapsedMillis;
+
+        BulkProgress(String operation, int chunksDone, int chunksTotal, long rowsAffected, long elapsedNanos) {
+            this.operation = operation;
+            this.chunksDone = chunksDone;
+            this.chunksTotal = chunksTotal;
+            this.rowsAffected = rowsAffected;
+            this.elapsedMillis = elapsedNanos / 1_000_000;
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class BulkReport {
+        private final String operation;
+        private final int chunks;
+        private final long rowsAffected;
+        private final long elapsedMillis;
+        private final long rowsPerSecond;
+
+        BulkReport(String operation, int chunks, long rowsAffected, long elapsedNanos) {
+            this.operation = operation;
+            this.chunks = chunks;
+            this.rowsAffected = rowsAffected;
+            this.elapsedMillis = elapsedNanos / 1_000_000;
+            this.rowsPerSecond = elapsedNanos > 0 ? rowsAffected * 1_000_000_000L / elapsedNanos : 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mysema.commons.lang.CloseableIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 검색 결과를 한 행씩 스트리밍으로 내려준다.
+ * 결과 전체를 List 로 만들지 않기 때문에 결과 건수와 상관없이 힙 사용량이 일정하다.
+ */
+@Service
+public class MemberExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public MemberExportService(MemberJpaRepository memberJpaRepository, ObjectMapper objectMapper,
+                               @Value("${member.export.fetch-size:500}") int fetchSize) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(MemberTeamDto.class);
+        this.fetchSize = fetchSize;
+    }
+
+    // 스크롤 커서가 살아있는 동안 트랜잭션(커넥션)을 유지해야 한다.
+    @Transactional(readOnly = true)
+    public long export(MemberSearchCondition condition, Format format, OutputStream out) throws IOException {
+        try (CloseableIterator<MemberTeamDto> rows = memberJpaRepository.iterateByWhereParam(condition, fetchSize)) {
+            return format == Format.CSV ? writeCsv(rows, out) : writeNdjson(rows, out);
+        }
+    }
+
+    private long writeNdjson(CloseableIterator<MemberTeamDto> rows, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);  // 행 구분은 직접 개행으로 한다.
+            while (rows.hasNext()) {
+                rowWriter.writeValue(generator, rows.next());
+                generator.writeRaw('\n');
+                if (++count % fetchSize == 0) {
+                    generator.flush();  // fetch 단위로 클라이언트에 밀어낸다. (chunked)
+                }
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(CloseableIterator<MemberTeamDto> rows, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("memberId,username,age,teamId,teamName\n");
+        while (rows.hasNext()) {
+            MemberTeamDto row = rows.next();
+            writer.write(String.valueOf(row.getMemberId()));
+            writer.write(',');
+            writer.write(csv(row.getUsername()));
+            writer.write(',');
+            writer.write(Integer.toString(row.getAge()));
+            writer.write(',');
+            writer.write(row.getTeamId() != null ? row.getTeamId().toString() : "");
+            writer.write(',');
+            writer.write(csv(row.getTeamName()));
+            writer.write('\n');
+            if (++count % fetchSize == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
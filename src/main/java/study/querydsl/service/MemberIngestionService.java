@@ -0,0 +1,181 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * member 쓰기 지연(write-behind) 적재기.
+ * 요청은 제한된 큐에 넣고 바로 돌아가며, 전용 writer 스레드가 batch-size 개가 모이거나 max-delay 가 지나면
+ * 한 트랜잭션으로 모아 persist 한다. (JDBC 배치 한 번, 시퀀스는 pooled 라 거의 호출되지 않는다)
+ *
+ * 응답 future 는 그 배치가 커밋된 뒤에야 member id 로 완료된다. 즉 완료된 future 는 DB 에 남아있다는 뜻이다.
+ * 배치가 실패하면 한 건씩 자기 트랜잭션으로 다시 넣어서, 문제가 된 요청만 실패시킨다. 큐에만 들어간 요청은 프로세스가 죽으면 사라진다.
+ * 큐가 가득 차면 기다리지 않고 RejectedExecutionException 으로 실패시켜 호출자가 속도를 줄이게 한다.
+ */
+@Slf4j
+@Service
+public class MemberIngestionService {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+    private volatile boolean running = true;
+
+    public MemberIngestionService(EntityManager em, PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                  @Value("${member.ingest.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${member.ingest.batch-size:${spring.jpa.properties.hibernate.jdbc.batch_size:100}}") int batchSize,
+                                  @Value("${member.ingest.max-delay-ms:50}") long maxDelayMillis) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+
+        Gauge.builder("member.ingest.queue.depth", queue, BlockingQueue::size).register(registry);
+        this.batchSizes = DistributionSummary.builder("member.ingest.batch.size").register(registry);
+        this.flushTimer = Timer.builder("member.ingest.flush").register(registry);
+
+        this.writer = new Thread(this::runWriter, "member-ingest-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public CompletableFuture<Long> submit(MemberIngestRequest request) {
+        Pending pending = new Pending(request);
+        if (!running || !queue.offer(pending)) {
+            pending.future.completeExceptionally(new RejectedExecutionException(
+                    running ? "member ingest queue is full" : "member ingestion is shut down"));
+        }
+        return pending.future;
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    // 종료 전 큐에 남은 요청까지 적재하고 멈춘다.
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        // 종료 직전에 들어와 writer 가 못 본 요청은 실패로 돌려준다.
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            left.future.completeExceptionally(new RejectedExecutionException("member ingestion is shut down"));
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;    // 인터럽트되면 지금까지 모은 것과 큐에 남은 것만 적재하고 끝낸다.
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long start = System.nanoTime();
+        try {
+            persist(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+            } else {
+                // 어느 행 때문인지 모르므로 한 건씩 다시 넣는다. 실패는 드물어서 배치를 나눠 찾는 것보다 단순한 쪽을 택했다.
+                log.warn("member ingest batch of {} failed, retrying one by one", batch.size(), e);
+                for (Pending pending : batch) {
+                    try {
+                        persist(List.of(pending));
+                    } catch (RuntimeException single) {
+                        fail(pending, single);
+                    }
+                }
+            }
+        } finally {
+            batchSizes.record(batch.size());
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void persist(List<Pending> batch) {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> persisted = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                Member member = new Member(pending.request.getUsername(), pending.request.getAge());
+                if (pending.request.getTeamId() != null) {
+                    member.setTeam(em.getReference(Team.class, pending.request.getTeamId()));
+                }
+                em.persist(member);
+                persisted.add(member.getId());
+            }
+            return persisted;
+        });
+        // 커밋이 끝난 뒤에만 완료시킨다.
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(ids.get(i));
+        }
+    }
+
+    private void fail(Pending pending, RuntimeException e) {
+        log.warn("member ingest of {} failed", pending.request.getUsername(), e);
+        pending.future.completeExceptionally(e);
+    }
+
+    private static class Pending {
+        private final MemberIngestRequest request;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        Pending(MemberIngestRequest request) {
+            this.request = request;
+        }
+    }
+}
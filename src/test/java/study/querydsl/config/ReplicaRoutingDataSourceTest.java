@@ -0,0 +1,126 @@
+package study.querydsl.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 각각 다른 in-memory H2 를 primary / replica 로 두고 어느 DB 로 갔는지 확인한다.
+class ReplicaRoutingDataSourceTest {
+
+    DataSource primary = h2("primary");
+    DataSource replica1 = h2("replica1");
+    DataSource replica2 = h2("replica2");
+
+    @AfterEach
+    public void clear(){
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void writeGoesToPrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica1, replica2),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, 1000);
+
+        assertThat(databaseOf(routing)).isEqualTo("PRIMARY");
+    }
+
+    @Test
+    public void readOnlyRoundRobin() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica1, replica2),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, 1000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        List<String> databases = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            databases.add(databaseOf(routing));
+        }
+        assertThat(databases).containsExactly("REPLICA1", "REPLICA2", "REPLICA1", "REPLICA2");
+    }
+
+    @Test
+    public void fallbackToPrimaryWhenReplicaIsDown() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(new BrokenDataSource(), replica2),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, 60_000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // 첫 요청은 고장난 레플리카를 골라 primary 로 돌아가고, 이후에는 그 레플리카를 건너뛴다.
+        assertThat(databaseOf(routing)).isEqualTo("PRIMARY");
+        assertThat(databaseOf(routing)).isEqualTo("REPLICA2");
+        assertThat(databaseOf(routing)).isEqualTo("REPLICA2");
+    }
+
+    @Test
+    public void leastLatencyAvoidsBrokenReplica() throws SQLException {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(new BrokenDataSource()),
+                ReplicaRoutingDataSource.Strategy.LEAST_LATENCY, 60_000);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(databaseOf(routing)).isEqualTo("PRIMARY");
+        assertThat(databaseOf(routing)).isEqualTo("PRIMARY");
+    }
+
+    @Test
+    public void explicitCredentialsAreNotSupported(){
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(replica1),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, 1000);
+
+        assertThatThrownBy(() -> routing.getConnection("sa", ""))
+                .isInstanceOf(SQLFeatureNotSupportedException.class);
+    }
+
+    @Test
+    public void lazyProxyRoutesByTransactionReadOnlyFlag(){
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, List.of(replica1),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, 1000));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        String write = tx.execute(status -> jdbcTemplate.queryForObject("call database()", String.class));
+        tx.setReadOnly(true);
+        String read = tx.execute(status -> jdbcTemplate.queryForObject("call database()", String.class));
+
+        assertThat(write).isEqualTo("PRIMARY");
+        assertThat(read).isEqualTo("REPLICA1");
+    }
+
+    private static String databaseOf(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getCatalog();
+        }
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    static class BrokenDataSource extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            throw new SQLException("replica is down");
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
+import study.querydsl.support.SqlStatementCollector;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// 데이터 버전은 커밋된 변경만 따라가므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberResponseCacheTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        memberBulkLoader.load(2, 100);
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void notModifiedWithoutQuery() throws Exception {
+        MvcResult first = mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("size", "5"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        SqlStatementCollector.clear();
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("size", "5")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // 같은 버전이면 ETag 가 없어도 직렬화해둔 바이트를 그대로 돌려준다.
+        mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(first.getResponse().getContentAsByteArray()));
+        assertThat(SqlStatementCollector.statements()).isEmpty();
+
+        // 다른 조건 / 페이지는 다른 ETag
+        String otherPage = mockMvc.perform(get("/v2/members").param("teamName", "teamA").param("size", "5").param("page", "1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(otherPage).isNotEqualTo(etag);
+    }
+
+    @Test
+    public void committedWritesChangeETag() throws Exception {
+        String etag = mockMvc.perform(get("/v3/members").param("size", "5"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        tx.executeWithoutResult(status -> em.createQuery("select m from Member m where m.username = 'member0'", Member.class)
+                .getSingleResult().setAge(99));
+        String afterMemberWrite = mockMvc.perform(get("/v3/members").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(afterMemberWrite).isNotEqualTo(etag);
+
+        tx.executeWithoutResult(status -> em.persist(new Team("teamC")));
+        mockMvc.perform(get("/v3/members").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, afterMemberWrite))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void rolledBackWritesKeepETag() throws Exception {
+        String etag = mockMvc.perform(get("/v4/members").param("size", "5"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("ghost", 1));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        mockMvc.perform(get("/v4/members").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void etagFromAnotherBootIsNotMatched() throws Exception {
+        String etag = mockMvc.perform(get("/v3/members").param("size", "5"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // 재기동하면 카운터가 같은 값으로 돌아와도 epoch 가 달라 304 가 나가지 않는다.
+        String otherBoot = "\"00000000" + etag.substring(etag.indexOf('-'));
+        mockMvc.perform(get("/v3/members").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, otherBoot))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    public void binaryFormats() throws Exception {
+        byte[] json = mockMvc.perform(get("/v2/members").param("size", "50"))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] cbor = mockMvc.perform(get("/v2/members").param("size", "50").header(HttpHeaders.ACCEPT, "application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] smile = mockMvc.perform(get("/v2/members").param("size", "50")
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/x-jackson-smile"))
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode expected = new ObjectMapper().readTree(json);
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor)).isEqualTo(expected);
+        assertThat(new ObjectMapper(new SmileFactory()).readTree(smile)).isEqualTo(expected);
+        assertThat(cbor.length).isLessThan(json.length);
+        assertThat(smile.length).isLessThan(json.length);
+
+        mockMvc.perform(get("/v2/members").header(HttpHeaders.ACCEPT, "text/plain"))
+                .andExpect(status().isNotAcceptable());
+        // 다른 엔드포인트는 메시지 컨버터로 같은 형식을 고른다.
+        mockMvc.perform(get("/v6/members").header(HttpHeaders.ACCEPT, "application/cbor"))
+                .andExpect(content().contentType("application/cbor"));
+    }
+
+    @Test
+    public void gzipLargePages() throws Exception {
+        MvcResult plain = mockMvc.perform(get("/v2/members").param("size", "100"))
+                .andReturn();
+        MvcResult gzipped = mockMvc.perform(get("/v2/members").param("size", "100")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        assertThat(gzipped.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(plain.getResponse().getHeader(HttpHeaders.ETAG));
+        byte[] compressed = gzipped.getResponse().getContentAsByteArray();
+        assertThat(compressed.length).isLessThan(plain.getResponse().getContentAsByteArray().length);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.getResponse().getContentAsByteArray());
+        }
+
+        // 작은 응답은 압축하지 않는다.
+        mockMvc.perform(get("/v2/members").param("size", "1").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.support.SqlStatementCollector;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ddl-auto: create 가 member_seq 를 INCREMENT 10 으로 다시 만들므로, 블록 50 을 가정하는 다른 테스트 컨텍스트와 DB 를 같이 쓰지 않는다.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequence-generator;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.querydsl.id.member_seq.increment_size=10"})
+@Transactional
+class ConfigurableSequenceGeneratorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void incrementSizeFromSettings(){
+        Number increment = (Number) em.createNativeQuery(
+                "select increment from information_schema.sequences where sequence_name = 'MEMBER_SEQ'")
+                .getSingleResult();
+        assertThat(increment.longValue()).isEqualTo(10);
+    }
+
+    @Test
+    public void pooledLoCallsSequenceOncePerBlock(){
+        SqlStatementCollector.clear();
+        Long firstId = null;
+        for (int i = 0; i < 10; i++) {
+            Member member = new Member("member" + i, i);
+            em.persist(member);
+            if (firstId == null) {
+                firstId = member.getId();
+            }
+            assertThat(member.getId()).isEqualTo(firstId + i);
+        }
+
+        assertThat(SqlStatementCollector.statementsContaining("member_seq")).hasSizeLessThanOrEqualTo(1);
+    }
+}
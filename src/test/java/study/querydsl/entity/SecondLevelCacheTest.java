@@ -0,0 +1,120 @@
+package study.querydsl.entity;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberSqlRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+// 2차 캐시는 커밋된 데이터만 담으므로 트랜잭션을 직접 나눠서 확인한다.
+@SpringBootTest(properties = "member.cache.second-level.enabled=true")
+class SecondLevelCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    Long memberId;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        memberId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            return member1.getId();
+        });
+        emf.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void entityCache(){
+        tx.executeWithoutResult(status -> memberJpaRepository.findById(memberId).get().getTeam().getName());
+        tx.executeWithoutResult(status -> memberJpaRepository.findById(memberId).get().getTeam().getName());
+
+        // 두 번째 트랜잭션에서는 member, team 모두 DB 대신 캐시에서 읽는다.
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getDomainDataRegionStatistics(Member.class.getName()).getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics(Team.class.getName()).getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void queryCache(){
+        tx.executeWithoutResult(status -> memberJpaRepository.findByUsername("member1"));
+        tx.executeWithoutResult(status -> memberJpaRepository.findByUsername("member1"));
+
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void bulkUpdateEvictsCache(){
+        tx.executeWithoutResult(status -> memberJpaRepository.findById(memberId));
+
+        // 벌크 update 는 하이버네이트가 member 리전과 쿼리 캐시를 무효화한다.
+        tx.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .execute());
+
+        int age = tx.execute(status -> memberJpaRepository.findById(memberId).get().getAge());
+        int ageByQuery = tx.execute(status -> memberJpaRepository.findByUsername("member1").get(0).getAge());
+        assertThat(age).isEqualTo(11);
+        assertThat(ageByQuery).isEqualTo(11);
+    }
+
+    @Test
+    public void sqlUpsertEvictsQueryCache(){
+        tx.executeWithoutResult(status -> memberJpaRepository.findByUsername("member1"));
+        tx.executeWithoutResult(status -> memberJpaRepository.findByUsername("newbie"));
+
+        // JDBC 로 쓴 행은 update timestamp 를 올리지 않으므로 쿼리 리전을 비우지 않으면 옛 결과가 그대로 나온다.
+        tx.executeWithoutResult(status -> memberSqlRepository.upsertByUsername(List.of(
+                new MemberIngestRequest("member1", 20, null),
+                new MemberIngestRequest("newbie", 5, null))));
+
+        int age = tx.execute(status -> memberJpaRepository.findByUsername("member1").get(0).getAge());
+        int newbies = tx.execute(status -> memberJpaRepository.findByUsername("newbie").size());
+        assertThat(age).isEqualTo(20);
+        assertThat(newbies).isEqualTo(1);
+    }
+}
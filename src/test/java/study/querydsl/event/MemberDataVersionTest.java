@@ -0,0 +1,72 @@
+package study.querydsl.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 버전은 커밋된 트랜잭션만 따라가므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest
+class MemberDataVersionTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberDataVersion memberDataVersion;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void oncePerCommittedTransaction(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long before = memberDataVersion.current();
+
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+        assertThat(memberDataVersion.current()).isEqualTo(before + 1);
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("ghost", 1));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        assertThat(memberDataVersion.current()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void innerRequiresNewCountsSeparately(){
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        TransactionTemplate inner = new TransactionTemplate(transactionManager);
+        inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        long before = memberDataVersion.current();
+
+        outer.executeWithoutResult(status -> {
+            em.persist(new Member("outer", 1));
+            em.flush();
+            inner.executeWithoutResult(innerStatus -> em.persist(new Member("inner", 2)));
+            assertThat(memberDataVersion.current()).isEqualTo(before + 1);
+            em.persist(new Member("outer2", 3));
+            em.flush();
+        });
+        assertThat(memberDataVersion.current()).isEqualTo(before + 2);
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.load;
+
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.service.MemberBulkLoader;
+
+import javax.persistence.EntityManager;
+
+/**
+ * member 10만 건을 넣으면서 id 할당 방식에 따른 insert 처리량을 잰다.
+ * 적재 방식(MemberBulkLoader)은 같게 두고 시퀀스 increment_size / optimizer 만 바꿔 비교한다.
+ */
+abstract class IdAllocationLoadTestSupport {
+
+    static final int ROWS = 100_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    MemberBulkLoader.LoadReport insert(String label) {
+        MemberBulkLoader.LoadReport report = memberBulkLoader.load(2, ROWS);
+        System.out.println(label + " : " + report.getRowsPerSecond() + " inserts/s, " + report.getElapsedMillis() + "ms");
+        return report;
+    }
+
+    long storedRows() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                em.createQuery("select count(distinct m.id) from Member m", Long.class).getSingleResult());
+    }
+}
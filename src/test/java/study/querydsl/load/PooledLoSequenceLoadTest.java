@@ -0,0 +1,24 @@
+package study.querydsl.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 시퀀스 한 번에 id 100 개 (jdbc batch_size 와 같게)
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.querydsl.id.member_seq.increment_size=100",
+        "spring.jpa.properties.querydsl.id.member_seq.optimizer=pooled-lo",
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.trace=warn"})
+class PooledLoSequenceLoadTest extends IdAllocationLoadTestSupport {
+
+    @Test
+    public void pooledLo(){
+        insert("pooled-lo (100)");
+
+        assertThat(storedRows()).isEqualTo(ROWS);
+    }
+}
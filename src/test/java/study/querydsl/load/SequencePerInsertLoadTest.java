@@ -0,0 +1,24 @@
+package study.querydsl.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 기존 방식 : insert 마다 시퀀스 호출
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.jpa.properties.querydsl.id.member_seq.increment_size=1",
+        "spring.jpa.properties.querydsl.id.team_seq.increment_size=1",
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.trace=warn"})
+class SequencePerInsertLoadTest extends IdAllocationLoadTestSupport {
+
+    @Test
+    public void sequencePerInsert(){
+        insert("sequence per insert");
+
+        assertThat(storedRows()).isEqualTo(ROWS);
+    }
+}
@@ -0,0 +1,94 @@
+package study.querydsl.load;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberSqlRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 같은 10만 건을 JPA save 와 querydsl-sql 배치 insert 로 넣을 때의 처리량 비교.
+ * 둘 다 1000 건마다 트랜잭션 하나로 커밋한다.
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=warn",
+        "logging.level.org.hibernate.trace=warn"})
+class SqlBatchInsertLoadTest {
+
+    static final int ROWS = 100_000;
+    static final int CHUNK = 1000;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void jpaSave(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += CHUNK) {
+            int chunkFrom = from;
+            tx.executeWithoutResult(status -> {
+                for (int i = chunkFrom; i < chunkFrom + CHUNK; i++) {
+                    memberJpaRepository.save(new Member("member" + i, i % 100));
+                }
+                em.flush();
+                em.clear();
+            });
+        }
+        report("jpa save", start);
+
+        assertThat(memberSqlRepository.count()).isEqualTo(ROWS);
+    }
+
+    @Test
+    public void querydslSqlBatch(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long start = System.nanoTime();
+        for (int from = 0; from < ROWS; from += CHUNK) {
+            List<MemberIngestRequest> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < from + CHUNK; i++) {
+                chunk.add(new MemberIngestRequest("member" + i, i % 100, null));
+            }
+            tx.executeWithoutResult(status -> memberSqlRepository.insertBatch(chunk));
+        }
+        report("querydsl-sql batch", start);
+
+        assertThat(memberSqlRepository.count()).isEqualTo(ROWS);
+    }
+
+    private static void report(String label, long start) {
+        long elapsedNanos = System.nanoTime() - start;
+        System.out.println(label + " : " + ROWS * 1_000_000_000L / elapsedNanos + " inserts/s, "
+                + elapsedNanos / 1_000_000 + "ms");
+    }
+}
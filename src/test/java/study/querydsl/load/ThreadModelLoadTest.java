@@ -0,0 +1,131 @@
+package study.querydsl.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.config.DatabaseConcurrencyLimiter;
+import study.querydsl.config.VirtualThreadConfig;
+import study.querydsl.service.MemberBulkLoader;
+
+import javax.persistence.EntityManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * /v5/members 에 동시 요청을 한꺼번에 보내고 플랫폼 스레드 / 가상 스레드 처리량을 비교한다.
+ * (/v2 ~ /v4 는 응답 캐시가 DB 를 건너뛰므로 매번 조회하는 keyset 검색을 쓴다)
+ * 톰캣 스레드 수는 같게 두고 요청 실행 스레드 모델만 바꾼 두 애플리케이션을 차례로 띄운다.
+ * 가상 스레드 쪽은 테스트 JVM 이 JDK 21 이상일 때만 실행한다. (./gradlew loadTest -PloadTestJavaHome=...)
+ */
+@Tag("load")
+class ThreadModelLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadModelLoadTest.class);
+
+    static final int CONCURRENT_REQUESTS = 2000;
+    static final int DB_PERMITS = 10;
+
+    @Test
+    public void virtualThreadsQueueInsteadOfRejecting(){
+        Result platform = run("platform threads", List.of());
+        assertThat(platform.count(200)).isEqualTo(CONCURRENT_REQUESTS);
+
+        assumeTrue(VirtualThreadConfig.isSupported(), "virtual threads require Java 21+");
+        Result virtual = run("virtual threads", List.of(
+                "--member.web.virtual-threads.enabled=true",
+                "--member.web.db-limiter.enabled=true",
+                "--member.web.db-limiter.permits=" + DB_PERMITS,
+                "--member.web.db-limiter.acquire-timeout-ms=30000"));
+        log.info("virtual / platform throughput = {}", String.format("%.2f", (double) virtual.requestsPerSecond / platform.requestsPerSecond));
+
+        // 요청은 모두 세마포어에서 줄을 서서 처리되고, 커넥션 풀이 고갈되거나 503 으로 거절되지 않는다.
+        assertThat(virtual.count(200)).isEqualTo(CONCURRENT_REQUESTS);
+        assertThat(virtual.queued).isPositive();
+        assertThat(virtual.rejected).isZero();
+    }
+
+    private Result run(String label, List<String> properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--server.tomcat.threads.max=20",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.trace=warn"));
+        args.addAll(properties);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .run(args.toArray(new String[0]))) {
+            context.getBean(MemberBulkLoader.class).load(2, 10_000);
+            try {
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                Result result = fire(port);
+                DatabaseConcurrencyLimiter limiter = context.getBeanProvider(DatabaseConcurrencyLimiter.class).getIfAvailable();
+                if (limiter != null) {
+                    result.queued = limiter.queuedCount();
+                    result.rejected = limiter.rejectedCount();
+                }
+                log.info("{} : {} req/s, status = {}, queued = {}, rejected = {}",
+                        label, result.requestsPerSecond, result.statuses, result.queued, result.rejected);
+                return result;
+            } finally {
+                cleanUp(context);
+            }
+        }
+    }
+
+    private Result fire(int port) {
+        HttpClient client = HttpClient.newHttpClient();
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(CONCURRENT_REQUESTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/v5/members?teamName=teamA&ageGoe=" + (i % 100) + "&size=20"))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        Map<Integer, Long> statuses = responses.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.groupingBy(HttpResponse::statusCode, Collectors.counting()));
+        long elapsedNanos = System.nanoTime() - start;
+        return new Result(statuses, CONCURRENT_REQUESTS * 1_000_000_000L / elapsedNanos);
+    }
+
+    private static void cleanUp(ConfigurableApplicationContext context) {
+        EntityManager em = context.getBean(EntityManager.class);
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    static class Result {
+        final Map<Integer, Long> statuses;
+        final long requestsPerSecond;
+        long queued;
+        long rejected;
+
+        Result(Map<Integer, Long> statuses, long requestsPerSecond) {
+            this.statuses = statuses;
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        long count(int status) {
+            return statuses.getOrDefault(status, 0L);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "member.sql-metrics.enabled=true",
+        "member.sql-metrics.slow-query-threshold-ms=0",
+        "member.count.cache-ttl=0s"})
+@Transactional
+class SqlMetricsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Test
+    public void recordByRepositoryMethod(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.flush();
+
+        memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 1));
+
+        Timer content = meterRegistry.find("sql.query").tag("method", "MemberRepositoryImpl.searchPageComplex.content").timer();
+        Timer count = meterRegistry.find("sql.query").tag("method", "MemberRepositoryImpl.searchPageComplex.count").timer();
+        assertThat(content).isNotNull();
+        assertThat(content.count()).isEqualTo(1);
+        assertThat(count).isNotNull();
+        assertThat(count.count()).isEqualTo(1);
+
+        // 임계값이 0 이므로 모든 쿼리가 느린 쿼리로 남는다.
+        assertThat(slowQueryLog.recent()).extracting("tag")
+                .contains("MemberRepositoryImpl.searchPageComplex.content", "MemberRepositoryImpl.searchPageComplex.count");
+    }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 인덱스는 커밋된 변경만 따라가므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest(properties = "member.columnar-index.enabled=true")
+class MemberColumnarIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberColumnarIndex memberColumnarIndex;
+
+    @BeforeEach
+    public void before(){
+        memberBulkLoader.load(2, 1000);
+        memberColumnarIndex.rebuild();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void sameResultAsDatabase(){
+        assertThat(memberColumnarIndex.isReady()).isTrue();
+
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member42");
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("teamB");
+        teamAndAge.setAgeGoe(35);
+        teamAndAge.setAgeLoe(45);
+        MemberSearchCondition ageOnly = new MemberSearchCondition();
+        ageOnly.setAgeLoe(9);
+        MemberSearchCondition noMatch = new MemberSearchCondition();
+        noMatch.setTeamName("teamZ");
+
+        for (MemberSearchCondition condition : List.of(new MemberSearchCondition(), username, teamAndAge, ageOnly, noMatch)) {
+            assertThat(memberColumnarIndex.search(condition))
+                    .usingFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByWhereParam(condition));
+        }
+    }
+
+    @Test
+    public void followsCommittedChanges(){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long id = transactionTemplate.execute(status -> {
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            Member newMember = new Member("newbie", 7, teamC);
+            em.persist(newMember);
+            return newMember.getId();
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+        List<MemberTeamDto> result = memberColumnarIndex.search(condition);
+        assertThat(result).extracting("username").containsExactly("newbie");
+
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, id).setAge(70));
+        condition.setAgeGoe(70);
+        assertThat(memberColumnarIndex.search(condition)).extracting("memberId").containsExactly(id);
+
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+        assertThat(memberColumnarIndex.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void followsTeamRename(){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long teamId = transactionTemplate.execute(status -> em.createQuery("select t.id from Team t where t.name = 'teamA'", Long.class)
+                .getSingleResult());
+
+        // 팀을 로딩하지 않은 채(프록시) 넣어도 사전에 있는 팀이면 다시 읽지 않고 반영된다.
+        transactionTemplate.executeWithoutResult(status -> {
+            Member proxied = new Member("proxied", 3);
+            proxied.setTeam(em.getReference(Team.class, teamId));
+            em.persist(proxied);
+        });
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId).changeName("teamA2"));
+
+        MemberSearchCondition renamed = new MemberSearchCondition();
+        renamed.setTeamName("teamA2");
+        MemberSearchCondition old = new MemberSearchCondition();
+        old.setTeamName("teamA");
+        assertThat(memberColumnarIndex.isReady()).isTrue();
+        assertThat(memberColumnarIndex.search(old)).isEmpty();
+        assertThat(memberColumnarIndex.search(renamed))
+                .usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByWhereParam(renamed))
+                .extracting("username").contains("proxied");
+    }
+
+    @Test
+    public void rolledBackChangesAreIgnored(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(new Member("ghost", 1));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("ghost");
+        assertThat(memberColumnarIndex.search(condition)).isEmpty();
+    }
+}
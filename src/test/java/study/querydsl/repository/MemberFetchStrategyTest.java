@@ -0,0 +1,99 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.MaxQueries;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberFetchStrategyTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void before(){
+        for (int t = 0; t < 5; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for (int i = 0; i < 4; i++) {
+                em.persist(new Member("member" + t + i, 10 * i, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @MaxQueries(1)
+    public void fetchJoin(){
+        List<Member> members = memberJpaRepository.searchEntityWithTeam(new MemberSearchCondition(), MemberFetchStrategy.FETCH_JOIN);
+
+        assertThat(members).hasSize(20);
+        assertThat(members).extracting(m -> m.getTeam().getName()).contains("team0", "team4");
+    }
+
+    @Test
+    @MaxQueries(1)
+    public void entityGraph(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        List<Member> members = memberJpaRepository.searchEntityWithTeam(condition, MemberFetchStrategy.ENTITY_GRAPH);
+
+        assertThat(members).hasSize(10);
+        assertThat(members).extracting(m -> m.getTeam().getName()).contains("team0", "team4");
+    }
+
+    @Test
+    @MaxQueries(2)  // member 1번 + team IN 쿼리 1번 (팀이 5개여도 N+1 이 아니다)
+    public void batch(){
+        List<Member> members = memberJpaRepository.searchEntityWithTeam(new MemberSearchCondition(), MemberFetchStrategy.BATCH);
+
+        assertThat(members).hasSize(20);
+        assertThat(members).extracting(m -> m.getTeam().getName()).contains("team0", "team4");
+    }
+
+    @Test
+    @MaxQueries(1)
+    public void pagedChoosesByPageSize(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team3");
+        List<Member> members = memberJpaRepository.searchEntityWithTeam(condition, PageRequest.of(0, 3));
+
+        assertThat(members).extracting("username").containsExactly("member30", "member31", "member32");
+        assertThat(members).extracting(m -> m.getTeam().getName()).containsOnly("team3");
+    }
+
+    @Test
+    @MaxQueries(2)  // unpaged 는 배치 로딩 : member 1번 + team IN 쿼리 1번
+    public void unpagedUsesBatch(){
+        List<Member> members = memberJpaRepository.searchEntityWithTeam(new MemberSearchCondition(), Pageable.unpaged());
+
+        assertThat(members).hasSize(20);
+        assertThat(members).extracting(m -> m.getTeam().getName()).contains("team0", "team4");
+    }
+
+    @Test
+    @MaxQueries(2)  // team 컬렉션도 @BatchSize 로 한 번에 초기화된다.
+    public void teamMembersBatch(){
+        List<Team> teams = em.createQuery("select t from Team t", Team.class).getResultList();
+
+        assertThat(teams).extracting(t -> t.getMemberList().size()).containsOnly(4);
+    }
+}
@@ -0,0 +1,99 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.ExplainAdvisor;
+import study.querydsl.support.SqlStatementCollector;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// MemberRepositoryImpl 의 각 검색이 만든 SQL 을 EXPLAIN 해서 인덱스를 타는지 본다. count 캐시는 꺼서 count 쿼리도 확인한다.
+@SpringBootTest(properties = "member.count.cache-ttl=0s")
+@Transactional
+class MemberIndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 200; i++) {
+            em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void usernameUsesIndex(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+
+        assertThat(fullScansOn(condition, "member")).isEmpty();
+    }
+
+    @Test
+    public void ageRangeUsesIndex(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(20);
+
+        assertThat(fullScansOn(condition, "member")).isEmpty();
+    }
+
+    @Test
+    public void teamNameUsesIndex(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        assertThat(fullScansOn(condition, "team")).isEmpty();
+    }
+
+    @Test
+    public void teamNameAndAgeRangeUsesIndex(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(45);
+
+        assertThat(fullScansOn(condition, "member")).isEmpty();
+        assertThat(fullScansOn(condition, "team")).isEmpty();
+    }
+
+    private List<ExplainAdvisor.FullScan> fullScansOn(MemberSearchCondition condition, String table) {
+        SqlStatementCollector.clear();
+        memberRepository.searchByWhereParam(condition);
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+        memberRepository.searchPageComplex_count(condition, PageRequest.of(0, 10));
+        memberRepository.searchPageParallel(condition, PageRequest.of(0, 10));
+        memberRepository.searchSlice(condition, MemberCursor.first(MemberCursor.Order.AGE), 10);
+
+        List<ExplainAdvisor.FullScan> scans = new ArrayList<>();
+        for (ExplainAdvisor.FullScan scan : ExplainAdvisor.fullScans(em, SqlStatementCollector.statements())) {
+            if (scan.getTable().equals(table)) {
+                scans.add(scan);
+            }
+        }
+        return scans;
+    }
+}
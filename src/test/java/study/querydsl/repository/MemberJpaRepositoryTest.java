@@ -1,6 +1,7 @@
 package study.querydsl.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -27,6 +28,9 @@ class MemberJpaRepositoryTest {
     @Autowired
     MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    MemberSearchQueryCache searchQueryCache;
+
     @Test
     public void basicTest(){
         Member mem =  new Member("member1",10);
@@ -111,4 +115,52 @@ class MemberJpaRepositoryTest {
         List<MemberTeamDto> memberTeamDtos = memberJpaRepository.searchByWhereParam(memberSearchCondition);
         assertThat(memberTeamDtos).extracting("username").contains("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchQueryCacheTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",30,teamB));
+
+        MemberSearchCondition first = new MemberSearchCondition();
+        first.setTeamName("teamA");
+        first.setAgeGoe(15);
+        assertThat(memberJpaRepository.searchByWhereParam(first)).extracting("username").containsExactly("member2");
+
+        // 같은 모양(teamName + ageGoe)이면 값이 달라도 템플릿을 재사용한다.
+        long hitsBefore = searchQueryCache.hitCount();
+        MemberSearchCondition second = new MemberSearchCondition();
+        second.setTeamName("teamB");
+        second.setAgeGoe(30);
+        List<MemberTeamDto> result = memberJpaRepository.searchByWhereParam(second);
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member3","member4");
+        assertThat(result).extracting("teamName").containsOnly("teamB");
+        assertThat(searchQueryCache.hitCount()).isEqualTo(hitsBefore + 1);
+
+        // ageGoe 와 ageLoe 값이 같아도 각각의 파라미터로 바인딩된다.
+        MemberSearchCondition sameAge = new MemberSearchCondition();
+        sameAge.setAgeGoe(30);
+        sameAge.setAgeLoe(30);
+        assertThat(memberJpaRepository.searchByWhereParam(sameAge)).hasSize(2);
+    }
+
+    @Test
+    public void searchEntityReadOnly(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1",10,teamA));
+        em.flush();
+        em.clear();
+
+        // 쓰기 트랜잭션 안에서 호출해도 스냅샷 없는 읽기 전용 엔티티로 읽힌다.
+        List<Member> members = memberJpaRepository.searchEntity(new MemberSearchCondition());
+        assertThat(members).hasSize(1);
+        assertThat(em.unwrap(Session.class).isReadOnly(members.get(0))).isTrue();
+    }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.repository;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberAgeReport;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberReportRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberReportRepository memberReportRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",40,teamB));
+        em.persist(new Member("member5",40,teamB));
+        em.persist(new Member("loner",25));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void ageVsAverages(){
+        List<MemberAgeReport> window = memberReportRepository.ageVsAverages();
+        List<MemberAgeReport> subquery = memberReportRepository.ageVsAveragesSubquery();
+
+        assertThat(window).hasSize(6);
+        for (int i = 0; i < window.size(); i++) {
+            assertThat(window.get(i).getMemberId()).isEqualTo(subquery.get(i).getMemberId());
+            assertThat(window.get(i).getGlobalAvgAge()).isCloseTo(subquery.get(i).getGlobalAvgAge(), Offset.offset(1e-9));
+        }
+        assertThat(window).extracting("teamAvgAge")
+                .containsExactly(15.0, 15.0, 110.0 / 3, 110.0 / 3, 110.0 / 3, null);
+        assertThat(subquery).extracting("teamAvgAge")
+                .containsExactly(15.0, 15.0, 110.0 / 3, 110.0 / 3, 110.0 / 3, null);
+        assertThat(window.get(0).getGlobalAvgAge()).isEqualTo(165.0 / 6);
+    }
+
+    @Test
+    public void aboveTeamAverage(){
+        assertThat(memberReportRepository.aboveTeamAverage())
+                .extracting("username").containsExactly("member2", "member4", "member5");
+        assertThat(memberReportRepository.aboveTeamAverageSubquery())
+                .usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(memberReportRepository.aboveTeamAverage());
+    }
+
+    @Test
+    public void atTeamMax(){
+        assertThat(memberReportRepository.atTeamMax())
+                .extracting("username").containsExactly("member2", "member4", "member5");
+        assertThat(memberReportRepository.atTeamMaxSubquery())
+                .usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(memberReportRepository.atTeamMax());
+    }
+}
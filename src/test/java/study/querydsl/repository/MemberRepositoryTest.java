@@ -5,12 +5,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSlice;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.support.SqlStatementCollector;
 
 import javax.persistence.EntityManager;
 import java.util.List;
@@ -28,6 +34,9 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;  // shift + f6하면 전체 다 바꿔준다.
 
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Test
     public void basicTest(){
         Member mem =  new Member("member1",10);
@@ -120,4 +129,123 @@ class MemberRepositoryTest {
         // client가 querydsl 에 의존한다.
         // 실무에 쓰기에 적합하지 않다.
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchSliceTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1",40,teamA);
+        Member member2 = new Member("member2",20,teamA);
+        Member member3 = new Member("member3",20,teamB);
+        Member member4 = new Member("member4",10,teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberSlice first = memberRepository.searchSlice(condition, MemberCursor.first(MemberCursor.Order.AGE), 2);
+        assertThat(first.getContent()).extracting("username").containsExactly("member4","member2");
+        assertThat(first.isHasNext()).isTrue();
+
+        // 토큰만으로 다음 페이지를 이어서 조회한다. 같은 나이(20)는 member_id 로 이어진다.
+        MemberSlice second = memberRepository.searchSlice(condition, MemberCursor.decode(first.getNextCursor()), 2);
+        assertThat(second.getContent()).extracting("username").containsExactly("member3","member1");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void searchPageCountCacheTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(0, 2);
+
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(4);
+
+        // 쓰기 트랜잭션 안에서는 커밋 전 자기 변경을 봐야 하므로 캐시를 쓰지 않는다.
+        em.persist(new Member("member4", 14, teamA));
+        assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(5);
+    }
+
+    // 캐시는 커밋된 쓰기에만 무효화되므로 테스트 트랜잭션 없이 직접 커밋하고 정리한다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void countCacheInvalidatedAfterCommit(){
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            Team teamA = tx.execute(status -> {
+                Team team = new Team("teamA");
+                em.persist(team);
+                for (int i = 0; i < 4; i++) {
+                    em.persist(new Member("member" + i, 10 + i, team));
+                }
+                return team;
+            });
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("teamA");
+            PageRequest pageRequest = PageRequest.of(0, 2);
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(4);
+
+            // 롤백된 쓰기는 캐시를 건드리지 않는다.
+            tx.executeWithoutResult(status -> {
+                em.persist(new Member("ghost", 1, em.merge(teamA)));
+                em.flush();
+                status.setRollbackOnly();
+            });
+            SqlStatementCollector.clear();
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(4);
+            assertThat(SqlStatementCollector.statementsContaining("count(")).isEmpty();
+
+            tx.executeWithoutResult(status -> em.persist(new Member("member4", 14, em.merge(teamA))));
+            assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements()).isEqualTo(5);
+        } finally {
+            tx.executeWithoutResult(status -> {
+                em.createQuery("delete from Member").executeUpdate();
+                em.createQuery("delete from Team").executeUpdate();
+            });
+        }
+    }
+
+    @Test
+    public void countQueryJoinTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, null));
+        PageRequest pageRequest = PageRequest.of(0, 1);
+
+        // team 조건이 없으면 count 쿼리에 조인이 없어야 한다.
+        MemberSearchCondition noTeam = new MemberSearchCondition();
+        noTeam.setAgeGoe(15);
+        SqlStatementCollector.clear();
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(noTeam, pageRequest);
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        List<String> countSql = SqlStatementCollector.statementsContaining("count(");
+        assertThat(countSql).hasSize(1);
+        assertThat(countSql.get(0).toLowerCase()).doesNotContain(" join ");
+
+        // team 조건이 있을 때만 조인한다.
+        MemberSearchCondition withTeam = new MemberSearchCondition();
+        withTeam.setTeamName("teamA");
+        SqlStatementCollector.clear();
+        page = memberRepository.searchPageComplex(withTeam, pageRequest);
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        countSql = SqlStatementCollector.statementsContaining("count(");
+        assertThat(countSql).hasSize(1);
+        assertThat(countSql.get(0).toLowerCase()).contains(" join ");
+    }
+}
@@ -0,0 +1,88 @@
+package study.querydsl.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSearchResultWriterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSearchResultWriter memberSearchResultWriter;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1",10,teamA));
+        em.persist(new Member("member2",20,teamA));
+        em.persist(new Member("member3",30,teamB));
+        em.persist(new Member("member4",40,null));
+        em.flush();     // querydsl-sql 은 같은 커넥션으로 직접 조회하므로 먼저 내보낸다.
+    }
+
+    @Test
+    public void sameResultAsDtoPath() throws Exception {
+        MemberSearchCondition all = new MemberSearchCondition();
+        MemberSearchCondition teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName("teamA");
+        teamAndAge.setAgeGoe(15);
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member4");
+        username.setAgeLoe(40);
+
+        for (MemberSearchCondition condition : List.of(all, teamAndAge, username)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long count;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                count = memberSearchResultWriter.writeByWhereParam(condition, generator);
+            }
+
+            List<MemberTeamDto> expected = memberJpaRepository.searchByWhereParam(condition);
+            List<MemberTeamDto> written = objectMapper.readValue(out.toByteArray(), new TypeReference<List<MemberTeamDto>>() {});
+            assertThat(count).isEqualTo(expected.size());
+            assertThat(written).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void writesSameJsonAsJackson() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member4");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            memberSearchResultWriter.writeByWhereParam(condition, generator);
+        }
+
+        // 필드 순서와 null 표현까지 Jackson 직렬화와 같아야 클라이언트가 구분하지 않는다.
+        assertThat(out.toString()).isEqualTo(objectMapper.writeValueAsString(memberJpaRepository.searchByWhereParam(condition)));
+    }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Test
+    public void insertBatch(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member jpaMember = new Member("jpa", 1, teamA);
+        em.persist(jpaMember);
+
+        List<Long> ids = memberSqlRepository.insertBatch(List.of(
+                new MemberIngestRequest("sql1", 10, teamA.getId()),
+                new MemberIngestRequest("sql2", 20, teamA.getId()),
+                new MemberIngestRequest("sql3", 30, null)));
+
+        // 같은 트랜잭션이라 JPA 로 바로 보이고, 시퀀스 블록을 나눠 쓰므로 id 가 겹치지 않는다.
+        assertThat(ids).hasSize(3).doesNotContain(jpaMember.getId());
+        assertThat(memberJpaRepository.findByUsername("sql2").get(0).getId()).isEqualTo(ids.get(1));
+        assertThat(memberJpaRepository.findByUsername("sql1").get(0).getTeam().getName()).isEqualTo("teamA");
+        assertThat(memberSqlRepository.count()).isEqualTo(4);
+
+        Member afterSql = new Member("jpa2", 2);
+        em.persist(afterSql);
+        assertThat(ids).doesNotContain(afterSql.getId());
+    }
+
+    @Test
+    public void upsertByUsername(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+
+        // flush 하지 않은 member1 도 upsert 전에 내보내지므로 update 대상이 된다.
+        MemberSqlRepository.UpsertResult result = memberSqlRepository.upsertByUsername(List.of(
+                new MemberIngestRequest("member1", 99, teamB.getId()),
+                new MemberIngestRequest("newbie", 5, teamA.getId())));
+
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getInserted()).isEqualTo(1);
+        Member member1 = memberJpaRepository.findByUsername("member1").get(0);
+        assertThat(member1.getAge()).isEqualTo(99);
+        assertThat(member1.getTeam().getName()).isEqualTo("teamB");
+        assertThat(memberJpaRepository.findByUsername("newbie")).hasSize(1);
+        assertThat(memberSqlRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void upsertByUsernameKeepsMemberId(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+
+        // 두 번째 upsert 는 첫 번째가 넣은 행도 찾아서 고치므로 행이 늘지 않고, 있던 member_id 도 그대로다.
+        memberSqlRepository.upsertByUsername(List.of(new MemberIngestRequest("newbie", 5, null)));
+        MemberSqlRepository.UpsertResult result = memberSqlRepository.upsertByUsername(List.of(
+                new MemberIngestRequest("member1", 20, null),
+                new MemberIngestRequest("newbie", 6, teamA.getId())));
+
+        assertThat(result.getUpdated()).isEqualTo(2);
+        assertThat(result.getInserted()).isZero();
+        assertThat(memberSqlRepository.count()).isEqualTo(2);
+        assertThat(memberJpaRepository.findByUsername("member1")).extracting("id").containsExactly(member1.getId());
+        assertThat(memberJpaRepository.findByUsername("newbie")).extracting("age").containsExactly(6);
+    }
+}
@@ -0,0 +1,122 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
+import study.querydsl.support.SqlStatementCollector;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 집계는 커밋된 변경만 따라가므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest(properties = "member.stats.enabled=true")
+class MemberStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MemberStatsRepository memberStatsRepository;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before(){
+        tx = new TransactionTemplate(transactionManager);
+        memberBulkLoader.load(2, 1000);
+        memberStatsRepository.rebuild();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void aggregateByTeam(){
+        assertThat(memberStatsRepository.isReady()).isTrue();
+
+        // teamA 는 짝수 member 이고 age = i % 100 이므로 0, 2, ... 98 이 10 명씩
+        TeamStats teamA = find(memberStatsRepository.teamStats(), "teamA");
+        assertThat(teamA.getMemberCount()).isEqualTo(500);
+        assertThat(teamA.getAverageAge()).isEqualTo(49.0);
+        assertThat(teamA.getAgeHistogram()[0]).isEqualTo(50);
+        assertThat(teamA.getAgeHistogram()[TeamStats.BUCKETS - 1]).isZero();
+    }
+
+    @Test
+    public void followsCommittedChanges(){
+        Long memberId = tx.execute(status -> em.createQuery(
+                "select m.id from Member m where m.username = 'member0'", Long.class).getSingleResult());
+
+        tx.executeWithoutResult(status -> em.find(Member.class, memberId).setAge(105));
+        TeamStats teamA = find(memberStatsRepository.teamStats(), "teamA");
+        assertThat(teamA.getAgeHistogram()[0]).isEqualTo(49);
+        assertThat(teamA.getAgeHistogram()[TeamStats.BUCKETS - 1]).isEqualTo(1);
+
+        tx.executeWithoutResult(status -> {
+            Member member0 = em.find(Member.class, memberId);
+            Team teamB = em.createQuery("select t from Team t where t.name = 'teamB'", Team.class).getSingleResult();
+            member0.setTeam(teamB);
+        });
+        tx.executeWithoutResult(status -> em.remove(em.createQuery(
+                "select m from Member m where m.username = 'member1'", Member.class).getSingleResult()));
+
+        // 메모리에서 고친 값이 DB 를 다시 집계한 값과 같아야 한다.
+        assertThat(memberStatsRepository.isReady()).isTrue();
+        assertThat(memberStatsRepository.teamStats())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(memberStatsRepository.aggregateFromDatabase());
+        assertThat(find(memberStatsRepository.teamStats(), "teamA").getMemberCount()).isEqualTo(499);
+        assertThat(find(memberStatsRepository.teamStats(), "teamB").getMemberCount()).isEqualTo(500);
+    }
+
+    @Test
+    public void rolledBackChangesAreIgnored(){
+        tx.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            em.persist(new Member("ghost", 1, teamA));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(find(memberStatsRepository.teamStats(), "teamA").getMemberCount()).isEqualTo(500);
+    }
+
+    @Test
+    public void servesLastStatsWhileRebuilding(){
+        tx.executeWithoutResult(status -> em.createQuery("update Member m set m.age = 0").executeUpdate());
+        memberStatsRepository.requestRebuild();
+
+        // 재적재가 끝나기 전에도 DB 를 다시 집계하지 않고 마지막 집계를 돌려준다.
+        SqlStatementCollector.clear();
+        assertThat(find(memberStatsRepository.teamStats(), "teamA").getMemberCount()).isEqualTo(500);
+        assertThat(SqlStatementCollector.statements()).isEmpty();
+        memberStatsRepository.rebuild();
+        assertThat(memberStatsRepository.isReady()).isTrue();
+        assertThat(find(memberStatsRepository.teamStats(), "teamA").getAverageAge()).isZero();
+    }
+
+    private static TeamStats find(List<TeamStats> stats, String teamName) {
+        return stats.stream().filter(s -> teamName.equals(s.getTeamName())).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 로더는 chunk 마다 커밋하므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest(properties = {"member.loader.chunk-size=300", "member.loader.parallelism=3"})
+class MemberBulkLoaderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void load(){
+        MemberBulkLoader.LoadReport report = memberBulkLoader.load(2, 1000);
+
+        assertThat(report.getMembers()).isEqualTo(1000);
+        assertThat(memberJpaRepository.findAll()).hasSize(1000);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        assertThat(memberJpaRepository.searchByWhereParam(condition)).hasSize(500);
+        assertThat(memberJpaRepository.findByUsername("member999").get(0).getAge()).isEqualTo(99);
+    }
+}
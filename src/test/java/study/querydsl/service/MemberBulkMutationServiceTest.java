@@ -0,0 +1,96 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// chunk 마다 커밋하므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest(properties = {"member.bulk.chunk-size=100", "member.bulk.parallelism=3"})
+class MemberBulkMutationServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkLoader memberBulkLoader;
+
+    @Autowired
+    MemberBulkMutationService memberBulkMutationService;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void before(){
+        memberBulkLoader.load(2, 1000);
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void addAge(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(50);
+
+        List<MemberBulkMutationService.BulkProgress> progress = new CopyOnWriteArrayList<>();
+        MemberBulkMutationService.BulkReport report = memberBulkMutationService.addAge(condition, 1, progress::add);
+
+        // teamA 는 짝수 member, 그 중 age(i % 100) 가 50 이상인 것
+        assertThat(report.getRowsAffected()).isEqualTo(250);
+        assertThat(report.getChunks()).isGreaterThan(1);
+        assertThat(progress).hasSize(report.getChunks());
+        assertThat(progress).extracting("chunksDone")
+                .containsExactlyInAnyOrder(IntStream.rangeClosed(1, report.getChunks()).boxed().toArray());
+        assertThat(progress).extracting("rowsAffected").contains(250L);
+
+        assertThat(memberJpaRepository.findByUsername("member50").get(0).getAge()).isEqualTo(51);
+        assertThat(memberJpaRepository.findByUsername("member51").get(0).getAge()).isEqualTo(51);
+        assertThat(memberJpaRepository.findByUsername("member0").get(0).getAge()).isEqualTo(0);
+    }
+
+    @Test
+    public void delete(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        MemberBulkMutationService.BulkReport report = memberBulkMutationService.delete(condition, null);
+
+        assertThat(report.getRowsAffected()).isEqualTo(500);
+        assertThat(memberJpaRepository.findAll()).hasSize(500);
+        assertThat(memberJpaRepository.searchByWhereParam(condition)).isEmpty();
+    }
+
+    @Test
+    public void noMatch(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("nobody");
+
+        MemberBulkMutationService.BulkReport report = memberBulkMutationService.delete(condition, null);
+
+        assertThat(report.getChunks()).isZero();
+        assertThat(report.getRowsAffected()).isZero();
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberIngestRequest;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// writer 스레드가 자기 트랜잭션으로 커밋하므로 @Transactional 롤백 대신 직접 정리한다.
+@SpringBootTest(properties = {"member.ingest.batch-size=50", "member.ingest.max-delay-ms=20"})
+class MemberIngestionServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberIngestionService memberIngestionService;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanUp(){
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void acknowledgedAfterCommit() throws Exception {
+        Long teamId = new TransactionTemplate(transactionManager).execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 230; i++) {
+            futures.add(memberIngestionService.submit(new MemberIngestRequest("member" + i, i % 100, teamId)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // 완료된 future 의 id 는 다른 트랜잭션에서 바로 보인다.
+        Long lastId = futures.get(229).get();
+        assertThat(memberJpaRepository.findById(lastId)).hasValueSatisfying(m -> assertThat(m.getUsername()).isEqualTo("member229"));
+        assertThat(memberJpaRepository.findAll()).hasSize(230);
+        assertThat(futures).extracting(CompletableFuture::join).doesNotHaveDuplicates();
+
+        // 50 개씩 묶였으므로 배치 수는 요청 수보다 훨씬 적다.
+        long batches = meterRegistry.get("member.ingest.batch.size").summary().count();
+        assertThat(batches).isGreaterThanOrEqualTo(5).isLessThan(230);
+        assertThat(meterRegistry.get("member.ingest.batch.size").summary().max()).isLessThanOrEqualTo(50);
+        assertThat(meterRegistry.get("member.ingest.queue.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    public void poisonRowFailsOnlyItself() throws Exception {
+        Long teamId = new TransactionTemplate(transactionManager).execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+
+        // 배치 하나를 채우고 가운데 한 건만 없는 팀을 가리키게 한다.
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(memberIngestionService.submit(new MemberIngestRequest("member" + i, i, i == 25 ? -1L : teamId)));
+        }
+        CompletableFuture<Long> poison = futures.remove(25);
+
+        assertThatThrownBy(() -> poison.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        assertThat(memberJpaRepository.findAll()).hasSize(49);
+        assertThat(memberJpaRepository.findByUsername("member25")).isEmpty();
+    }
+
+    @Test
+    public void failedBatchFailsItsRequests(){
+        // 없는 팀을 가리키면 커밋 시 FK 위반으로 롤백되고 future 도 실패한다.
+        CompletableFuture<Long> broken = memberIngestionService.submit(new MemberIngestRequest("broken", 10, -1L));
+
+        assertThatThrownBy(() -> broken.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(memberJpaRepository.findByUsername("broken")).isEmpty();
+    }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.support;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SqlStatementCollector 로 모은 SQL 에 H2 EXPLAIN 을 돌려 인덱스 없이 테이블 전체를 읽는 곳을 찾는다.
+ * H2 실행 계획에서 풀 스캔은 "PUBLIC.MEMBER.tableScan" 처럼 표시된다.
+ * 새 검색 모양이 생겼을 때 스키마 인덱스가 따라가고 있는지 확인하는 용도.
+ */
+public class ExplainAdvisor {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+
+    public static List<FullScan> fullScans(EntityManager em, List<String> statements) {
+        List<FullScan> result = new ArrayList<>();
+        em.unwrap(Session.class).doWork(connection -> {
+            for (String sql : statements) {
+                try (PreparedStatement ps = connection.prepareStatement("explain " + sql)) {
+                    // 계획은 prepare 시점에 정해지므로 값은 아무거나 넣어도 된다.
+                    for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+                        ps.setObject(i, null);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        String plan = rs.getString(1);
+                        Matcher matcher = TABLE_SCAN.matcher(plan);
+                        while (matcher.find()) {
+                            result.add(new FullScan(matcher.group(1).toLowerCase(Locale.ROOT), sql, plan));
+                        }
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    public static class FullScan {
+        private final String table;
+        private final String sql;
+        private final String plan;
+
+        FullScan(String table, String sql, String plan) {
+            this.table = table;
+            this.sql = sql;
+            this.plan = plan;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        @Override
+        public String toString() {
+            return "full scan on " + table + "\n" + plan;
+        }
+    }
+}
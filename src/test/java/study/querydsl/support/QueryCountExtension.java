@@ -0,0 +1,28 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.util.List;
+
+public class QueryCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        SqlStatementCollector.clear();
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        MaxQueries maxQueries = context.getRequiredTestMethod().getAnnotation(MaxQueries.class);
+        if (maxQueries == null) {
+            return;
+        }
+        List<String> statements = SqlStatementCollector.statements();
+        if (statements.size() > maxQueries.value()) {
+            throw new AssertionError("expected at most " + maxQueries.value() + " statements but "
+                    + statements.size() + " were executed (N+1?)\n" + String.join("\n---\n", statements));
+        }
+    }
+}
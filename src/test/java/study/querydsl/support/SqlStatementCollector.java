@@ -0,0 +1,36 @@
+package study.querydsl.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 테스트에서 실제로 나간 SQL 을 확인하기 위한 StatementInspector.
+ * test application.yml 의 hibernate.session_factory.statement_inspector 로 등록되어 있다.
+ */
+public class SqlStatementCollector implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get().add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        statements.get().clear();
+    }
+
+    public static List<String> statements() {
+        return new ArrayList<>(statements.get());
+    }
+
+    public static List<String> statementsContaining(String keyword) {
+        return statements.get().stream()
+                .filter(sql -> sql.toLowerCase().contains(keyword))
+                .collect(Collectors.toList());
+    }
+}